@@ -0,0 +1,119 @@
+package com.sotfinder.api.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sotfinder.api.language.dto.CanonicalSourceDTO;
+import com.sotfinder.api.language.dto.CurriculumDTO;
+import com.sotfinder.api.language.dto.LearningLevelDTO;
+import com.sotfinder.api.language.dto.LearningResourceDTO;
+import com.sotfinder.api.language.dto.PracticeProjectDTO;
+import com.sotfinder.api.language.dto.SourceReferenceDTO;
+import com.sotfinder.api.language.dto.TopicDTO;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic curricula and topics configs for the benchmarks, shaped like generated ones: every
+ * topic has subtopics, and every topic and subtopic has learning resources.
+ */
+public final class CurriculumFixtures {
+
+    public enum Size {
+        // levels, topics per level, subtopics per topic, resources per topic
+        SMALL(3, 4, 2, 3),
+        MEDIUM(4, 8, 4, 5),
+        LARGE(4, 15, 6, 8),
+        HUGE(5, 30, 10, 10);
+
+        final int levels;
+        final int topicsPerLevel;
+        final int subtopicsPerTopic;
+        final int resourcesPerTopic;
+
+        Size(int levels, int topicsPerLevel, int subtopicsPerTopic, int resourcesPerTopic) {
+            this.levels = levels;
+            this.topicsPerLevel = topicsPerLevel;
+            this.subtopicsPerTopic = subtopicsPerTopic;
+            this.resourcesPerTopic = resourcesPerTopic;
+        }
+    }
+
+    private static final String[] LEVELS = {"Beginner", "Intermediate", "Advanced", "Expert", "Master"};
+    private static final String[] RESOURCE_TYPES = {"Documentation", "Tutorial", "Video", "Article", "GitHub", "Book"};
+
+    private CurriculumFixtures() {
+    }
+
+    public static CurriculumDTO curriculum(Size size) {
+        Random random = new Random(42);
+        List<LearningLevelDTO> levels = new ArrayList<>();
+        for (int level = 0; level < size.levels; level++) {
+            List<TopicDTO> topics = new ArrayList<>();
+            for (int topic = 0; topic < size.topicsPerLevel; topic++) {
+                String id = "l" + level + "-t" + topic;
+                List<TopicDTO> subtopics = new ArrayList<>();
+                for (int subtopic = 0; subtopic < size.subtopicsPerTopic; subtopic++) {
+                    subtopics.add(topic(id + "-s" + subtopic, "Subtopic " + subtopic + " of " + id, List.of(), size, random));
+                }
+                topics.add(topic(id, "Topic " + topic + " of level " + level, subtopics, size, random));
+            }
+            levels.add(new LearningLevelDTO(LEVELS[level], 20 + random.nextInt(80), topics));
+        }
+        return new CurriculumDTO(
+                "java",
+                LocalDateTime.of(2024, 1, 1, 3, 0),
+                List.of(new CanonicalSourceDTO("oracle-docs", "The Java Tutorials", "https://docs.oracle.com/javase/tutorial/",
+                                "Oracle", "Official Docs", 0.98, "The official tutorials."),
+                        new CanonicalSourceDTO("jls", "Java Language Specification", "https://docs.oracle.com/javase/specs/",
+                                "Oracle", "Specification", 0.99, "The language specification.")),
+                levels,
+                List.of("https://docs.oracle.com/javase/tutorial/", "https://docs.oracle.com/javase/specs/"),
+                List.of("https://www.baeldung.com/", "https://dev.java/learn/"),
+                List.of(new PracticeProjectDTO("Command-line todo app", "Build a todo app with file persistence.", "Beginner", 10,
+                        List.of("Collections", "File I/O")),
+                        new PracticeProjectDTO("REST service", "Build a small REST service.", "Intermediate", 25,
+                                List.of("HTTP", "JSON", "Testing"))),
+                "Consolidated from the configured sources; ordered from fundamentals to advanced topics.",
+                "gpt-4o-mini");
+    }
+
+    private static TopicDTO topic(String id, String title, List<TopicDTO> subtopics, Size size, Random random) {
+        List<LearningResourceDTO> resources = new ArrayList<>();
+        for (int i = 0; i < size.resourcesPerTopic; i++) {
+            String type = RESOURCE_TYPES[random.nextInt(RESOURCE_TYPES.length)];
+            resources.add(new LearningResourceDTO(title + " - " + type + " " + i, "https://example.com/" + id + "/" + i, type,
+                    random.nextInt(100) / 100.0, "A " + type.toLowerCase() + " that explains " + title + " with examples."));
+        }
+        return new TopicDTO(id, title, "What " + title + " is about and why it matters.", random.nextInt(10), 1 + random.nextInt(8),
+                List.of(), List.of("Explain " + title, "Apply " + title), List.of("Exercise on " + title),
+                List.of(new SourceReferenceDTO("oracle-docs", "https://docs.oracle.com/javase/tutorial/" + id, "A short excerpt.",
+                        "Covered by the official tutorial.")),
+                List.of("oracle-docs"), subtopics, resources);
+    }
+
+    /** A topics config with as many topics and subtopics as {@link #curriculum} of the same size. */
+    public static JsonNode topicsConfig(Size size) {
+        JsonNodeFactory nodes = JsonNodeFactory.instance;
+        ArrayNode topics = nodes.arrayNode();
+        for (int topic = 0; topic < size.levels * size.topicsPerLevel; topic++) {
+            ObjectNode topicNode = topics.addObject()
+                    .put("id", "topic-" + topic)
+                    .put("title", "Topic " + topic)
+                    .put("description", "Everything about topic " + topic + ".");
+            topicNode.putArray("sources").add("https://docs.oracle.com/javase/tutorial/").add("https://dev.java/learn/");
+            ArrayNode subtopics = topicNode.putArray("subtopics");
+            for (int subtopic = 0; subtopic < size.subtopicsPerTopic; subtopic++) {
+                subtopics.addObject()
+                        .put("id", "topic-" + topic + "-" + subtopic)
+                        .put("title", "Subtopic " + subtopic + " of topic " + topic)
+                        .put("weight", subtopic % 3 + 1);
+            }
+        }
+        return topics;
+    }
+}
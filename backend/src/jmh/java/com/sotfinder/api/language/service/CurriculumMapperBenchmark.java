@@ -0,0 +1,52 @@
+package com.sotfinder.api.language.service;
+
+import com.sotfinder.api.benchmark.CurriculumFixtures;
+import com.sotfinder.api.language.dto.CurriculumDTO;
+import com.sotfinder.api.language.entity.CurriculumEntity;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Mapping between the persisted entity graph and the DTOs, in both directions
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CurriculumMapperBenchmark {
+
+    @Param({"SMALL", "MEDIUM", "LARGE", "HUGE"})
+    public CurriculumFixtures.Size size;
+
+    private final CurriculumMapper mapper = new CurriculumMapper();
+    private CurriculumDTO curriculum;
+    private CurriculumEntity entity;
+
+    @Setup
+    public void setUp() {
+        curriculum = CurriculumFixtures.curriculum(size);
+        entity = mapper.convertToEntity(curriculum, "config-hash");
+    }
+
+    @Benchmark
+    public CurriculumDTO convertToDto() {
+        return mapper.convertToDto(entity);
+    }
+
+    @Benchmark
+    public CurriculumEntity convertToEntity() {
+        return mapper.convertToEntity(curriculum, "config-hash");
+    }
+}
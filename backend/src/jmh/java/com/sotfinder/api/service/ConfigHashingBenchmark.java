@@ -0,0 +1,63 @@
+package com.sotfinder.api.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sotfinder.api.benchmark.CurriculumFixtures;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashing of a language's topics config by the loader: the per-topic hash tree used to detect
+ * changes, and the legacy SHA-256 of the pretty-printed config that old rows are compared with.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConfigHashingBenchmark {
+
+    @Param({"SMALL", "MEDIUM", "LARGE", "HUGE"})
+    public CurriculumFixtures.Size size;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ConfigTopicHasher configTopicHasher = new ConfigTopicHasher();
+    private JsonNode topicsConfig;
+    private String prettyTopicsConfig;
+
+    @Setup
+    public void setUp() throws IOException {
+        topicsConfig = CurriculumFixtures.topicsConfig(size);
+        prettyTopicsConfig = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(topicsConfig);
+    }
+
+    @Benchmark
+    public ConfigTopicHashTree hashTree() {
+        return configTopicHasher.hash(topicsConfig);
+    }
+
+    // As in CurriculumDataLoaderService.isUpToDate: pretty-print, then hash
+    @Benchmark
+    public String legacyHash() throws IOException {
+        return CurriculumDataLoaderService.calculateSHA256Hash(objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(topicsConfig));
+    }
+
+    @Benchmark
+    public String sha256() {
+        return CurriculumDataLoaderService.calculateSHA256Hash(prettyTopicsConfig);
+    }
+}
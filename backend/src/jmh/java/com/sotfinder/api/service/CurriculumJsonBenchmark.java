@@ -0,0 +1,55 @@
+package com.sotfinder.api.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sotfinder.api.benchmark.CurriculumFixtures;
+import com.sotfinder.api.language.dto.CurriculumDTO;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Jackson round trip of a CurriculumDTO, as done for completions, snapshots and API responses
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CurriculumJsonBenchmark {
+
+    @Param({"SMALL", "MEDIUM", "LARGE", "HUGE"})
+    public CurriculumFixtures.Size size;
+
+    // Configured the way Spring Boot configures the application's ObjectMapper
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private CurriculumDTO curriculum;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        curriculum = CurriculumFixtures.curriculum(size);
+        json = objectMapper.writeValueAsBytes(curriculum);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(curriculum);
+    }
+
+    @Benchmark
+    public CurriculumDTO deserialize() throws IOException {
+        return objectMapper.readValue(json, CurriculumDTO.class);
+    }
+}
@@ -0,0 +1,32 @@
+package com.sotfinder.api.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Normalization of the config's language names into the keys used everywhere else
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LanguageIdentifierBenchmark {
+
+    @Param({"Java", "C++ Basics", "JavaScript Frontend Developer Path", "Spring Boot Backend Learning Path"})
+    public String name;
+
+    @Benchmark
+    public String cleanLanguageIdentifier() {
+        return JsonDataService.cleanLanguageIdentifier(name);
+    }
+}
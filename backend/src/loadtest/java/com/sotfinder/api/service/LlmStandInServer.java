@@ -0,0 +1,371 @@
+package com.sotfinder.api.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sotfinder.api.language.dto.CanonicalSourceDTO;
+import com.sotfinder.api.language.dto.CurriculumDTO;
+import com.sotfinder.api.language.dto.LearningLevelDTO;
+import com.sotfinder.api.language.dto.LearningResourceDTO;
+import com.sotfinder.api.language.dto.PracticeProjectDTO;
+import com.sotfinder.api.language.dto.SourceReferenceDTO;
+import com.sotfinder.api.language.dto.TopicDTO;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A local stand-in for the chat-completions endpoint, for load tests and benchmarks of the
+ * generation pipeline without cost or network. Point {@code llm.chat-completions-url} at it (the
+ * {@code llm-stand-in} profile does). It lives in the {@code loadtest} source set, so it never
+ * ships with the application. It speaks the wire format the {@link OpenAIChatClient} uses,
+ * streaming included, and answers structured-output requests only: the {@code response_format}
+ * schema name picks a synthetic curriculum or resource list of that shape. A curriculum mirrors
+ * the topics of the config in the prompt, and a batch answers exactly the subtopic ids it was
+ * asked for. Latency is log-normal (median and p99), a share of the calls fails with 429 or 5xx,
+ * and calls above {@code max-concurrency} get a 429, so the limiter, retries and circuit breaker
+ * are exercised too. Token counts are prompt and completion characters divided by four. Content
+ * and faults are derived from {@code seed}, the prompt and how often that prompt was sent before,
+ * so a run is reproducible however the calls interleave.
+ */
+@Component
+@ConditionalOnProperty(name = "llm.stand-in.enabled", havingValue = "true")
+public class LlmStandInServer {
+
+    private static final Set<String> FORMATS = Set.of("curriculum", "learning_resources", "learning_resources_by_subtopic");
+    private static final Pattern LANGUAGE_LINE = Pattern.compile("(?m)^Language: (.+)$");
+    private static final Pattern SUBTOPIC_LINE = Pattern.compile("(?m)^Subtopic: (.+)$");
+    private static final String[] LEVELS = {"Beginner", "Intermediate", "Advanced"};
+    private static final String[] RESOURCE_TYPES = {"Documentation", "Tutorial", "Video", "Article", "GitHub", "Book"};
+
+    private final ObjectMapper objectMapper;
+    private final int port;
+    private final long seed;
+    private final double latencyMedianMillis;
+    private final double latencySigma;
+    private final double rateLimitRate;
+    private final double serverErrorRate;
+    private final int maxConcurrency;
+    private final Duration retryAfter;
+    private final int resourcesPerSubtopic;
+    private final int streamChunkChars;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // How often each prompt was sent, so a retry draws a different outcome than the attempt before
+    private final Map<String, AtomicInteger> attemptsByPrompt = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private HttpServer server;
+
+    public LlmStandInServer(
+            ObjectMapper objectMapper,
+            @Value("${llm.stand-in.port:8089}") int port,
+            @Value("${llm.stand-in.seed:42}") long seed,
+            @Value("${llm.stand-in.latency.median:PT2S}") Duration latencyMedian,
+            @Value("${llm.stand-in.latency.p99:PT20S}") Duration latencyP99,
+            @Value("${llm.stand-in.rate-limit-rate:0.02}") double rateLimitRate,
+            @Value("${llm.stand-in.server-error-rate:0.01}") double serverErrorRate,
+            @Value("${llm.stand-in.max-concurrency:0}") int maxConcurrency,
+            @Value("${llm.stand-in.retry-after:PT1S}") Duration retryAfter,
+            @Value("${llm.stand-in.resources-per-subtopic:6}") int resourcesPerSubtopic,
+            @Value("${llm.stand-in.stream-chunk-chars:40}") int streamChunkChars) {
+        this.objectMapper = objectMapper;
+        this.port = port;
+        this.seed = seed;
+        this.latencyMedianMillis = Math.max(1, latencyMedian.toMillis());
+        // p99 of a log-normal distribution is median * e^(2.326 * sigma)
+        this.latencySigma = Math.max(0, Math.log(Math.max(latencyP99.toMillis(), latencyMedianMillis) / latencyMedianMillis) / 2.326);
+        this.rateLimitRate = rateLimitRate;
+        this.serverErrorRate = serverErrorRate;
+        this.maxConcurrency = maxConcurrency;
+        this.retryAfter = retryAfter;
+        this.resourcesPerSubtopic = resourcesPerSubtopic;
+        this.streamChunkChars = Math.max(1, streamChunkChars);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/v1/chat/completions", this::handle);
+        server.setExecutor(executor);
+        server.start();
+        System.out.println("LlmStandInServer: Serving synthetic chat completions on http://localhost:" + server.getAddress().getPort()
+                + "/v1/chat/completions (median latency " + (long) latencyMedianMillis + " ms).");
+    }
+
+    @PreDestroy
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendJson(exchange, 405, error("Only POST is supported"));
+                return;
+            }
+            JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+            String format = request.path("response_format").path("json_schema").path("name").asText("");
+            if (!FORMATS.contains(format)) {
+                sendJson(exchange, 400, error("Unsupported response format '" + format
+                        + "'; the stand-in needs llm.structured-output.enabled=true"));
+                return;
+            }
+            String prompt = request.path("messages").path(0).path("content").asText("");
+            int attempt = attemptsByPrompt.computeIfAbsent(prompt, ignored -> new AtomicInteger()).getAndIncrement();
+            Random random = new Random(seed ^ prompt.hashCode() * 31L ^ attempt * 0x9E3779B97F4A7C15L);
+
+            int concurrent = inFlight.incrementAndGet();
+            try {
+                if (maxConcurrency > 0 && concurrent > maxConcurrency) {
+                    sendRateLimited(exchange, "Too many concurrent requests");
+                    return;
+                }
+                double fault = random.nextDouble();
+                if (fault < rateLimitRate) {
+                    sendRateLimited(exchange, "Rate limit reached");
+                    return;
+                }
+                long latencyMillis = Math.round(latencyMedianMillis * Math.exp(latencySigma * random.nextGaussian()));
+                if (fault < rateLimitRate + serverErrorRate) {
+                    Thread.sleep(latencyMillis / 2);
+                    sendJson(exchange, random.nextBoolean() ? 500 : 503, error("The server had an error while processing your request"));
+                    return;
+                }
+
+                String content = objectMapper.writeValueAsString(answer(format, prompt, request.path("model").asText("stand-in"),
+                        new Random(seed ^ prompt.hashCode())));
+                Map<String, Object> usage = Map.of(
+                        "prompt_tokens", tokens(prompt),
+                        "completion_tokens", tokens(content),
+                        "total_tokens", tokens(prompt) + tokens(content));
+                String model = request.path("model").asText("stand-in");
+                if (request.path("stream").asBoolean(false)) {
+                    stream(exchange, model, content, request.path("stream_options").path("include_usage").asBoolean(false) ? usage : null,
+                            latencyMillis);
+                } else {
+                    Thread.sleep(latencyMillis);
+                    sendJson(exchange, 200, Map.of(
+                            "id", "chatcmpl-stand-in-" + attempt,
+                            "object", "chat.completion",
+                            "created", System.currentTimeMillis() / 1000,
+                            "model", model,
+                            "choices", List.of(Map.of(
+                                    "index", 0,
+                                    "message", Map.of("role", "assistant", "content", content),
+                                    "finish_reason", "stop")),
+                            "usage", usage));
+                }
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            // The client gave up (timeout or cancellation) or the request was not a chat completion
+            System.err.println("LlmStandInServer: Request failed: " + e.getMessage());
+        }
+    }
+
+    // The schema name alone picks the answer; the prompt only supplies its content
+    private Object answer(String format, String prompt, String model, Random random) {
+        // The resource prompts name the language; curricula are stored under the language they were requested for
+        String language = match(LANGUAGE_LINE, prompt, "stand-in");
+        return switch (format) {
+            case "learning_resources_by_subtopic" -> new StructuredOutputs.ResourceListsById(subtopics(prompt).stream()
+                    .map(subtopic -> new StructuredOutputs.ResourceListsById.Result(subtopic.path("id").asText(),
+                            resources(language, subtopic.path("title").asText(), random)))
+                    .toList());
+            case "learning_resources" ->
+                    new StructuredOutputs.ResourceList(resources(language, match(SUBTOPIC_LINE, prompt, "subtopic"), random));
+            default -> curriculum(language, prompt, model, random);
+        };
+    }
+
+    private CurriculumDTO curriculum(String language, String prompt, String model, Random random) {
+        // Mirror the config's topic tree, spread over the levels in order
+        List<JsonNode> configTopics = new ArrayList<>();
+        JsonNode config = readJsonAfter(prompt, "Here is the JSON data:");
+        if (config != null && config.isArray()) {
+            config.forEach(configTopics::add);
+        }
+        // Topic and source ids are unique across all curricula, so each config gets its own id prefix
+        String idPrefix = "t" + Integer.toHexString(config != null ? config.hashCode() : 0) + "-";
+        if (configTopics.isEmpty()) {
+            for (int i = 0; i < 12; i++) {
+                configTopics.add(objectMapper.createObjectNode().put("title", "Topic " + (i + 1)));
+            }
+        }
+
+        List<LearningLevelDTO> levels = new ArrayList<>();
+        int perLevel = (configTopics.size() + LEVELS.length - 1) / LEVELS.length;
+        for (int levelIndex = 0; levelIndex < LEVELS.length; levelIndex++) {
+            List<TopicDTO> topics = new ArrayList<>();
+            for (int i = levelIndex * perLevel; i < Math.min(configTopics.size(), (levelIndex + 1) * perLevel); i++) {
+                topics.add(topic(idPrefix + (i + 1), configTopics.get(i), topics.size() + 1, random));
+            }
+            if (!topics.isEmpty()) {
+                levels.add(new LearningLevelDTO(LEVELS[levelIndex], topics.stream().mapToInt(TopicDTO::estimatedHours).sum(), topics));
+            }
+        }
+
+        String slug = slug(language);
+        return new CurriculumDTO(
+                language,
+                LocalDateTime.of(2024, 1, 1, 0, 0),
+                List.of(new CanonicalSourceDTO(idPrefix + "docs", language + " documentation", "https://docs.example.com/" + slug,
+                        "Example", "Official Docs", 0.95, "Synthetic canonical source.")),
+                levels,
+                List.of("https://docs.example.com/" + slug),
+                List.of("https://blog.example.com/" + slug),
+                List.of(new PracticeProjectDTO("Build a small " + language + " project", "Synthetic practice project.", "Beginner",
+                        8 + random.nextInt(16), List.of("Apply the basics"))),
+                "Synthetic curriculum from the local LLM stand-in.",
+                model);
+    }
+
+    private TopicDTO topic(String id, JsonNode config, int order, Random random) {
+        String title = config.isTextual() ? config.asText() : firstText(config, "title", "name", "id", "slug");
+        if (title == null) {
+            title = "Topic " + id;
+        }
+        List<TopicDTO> subtopics = new ArrayList<>();
+        for (String field : List.of("subtopics", "topics", "children")) {
+            if (config.path(field).isArray()) {
+                for (JsonNode child : config.path(field)) {
+                    subtopics.add(topic(id + "." + (subtopics.size() + 1), child, subtopics.size() + 1, random));
+                }
+                break;
+            }
+        }
+        return new TopicDTO(id, title, "Synthetic description of " + title + ".", order, 1 + random.nextInt(8),
+                List.of(), List.of("Understand " + title), List.of("Practice " + title),
+                List.of(new SourceReferenceDTO("docs", "https://docs.example.com/" + slug(title), null, "Covers " + title + ".")),
+                List.of("config"), subtopics, List.of());
+    }
+
+    private List<LearningResourceDTO> resources(String language, String subtopic, Random random) {
+        List<LearningResourceDTO> resources = new ArrayList<>(resourcesPerSubtopic);
+        for (int i = 0; i < resourcesPerSubtopic; i++) {
+            String type = RESOURCE_TYPES[random.nextInt(RESOURCE_TYPES.length)];
+            resources.add(new LearningResourceDTO(
+                    subtopic + " (" + type.toLowerCase() + " " + (i + 1) + ")",
+                    "https://example.com/" + slug(language) + "/" + slug(subtopic) + "/" + (i + 1),
+                    type,
+                    Math.round(random.nextDouble() * 100) / 100.0,
+                    "Synthetic " + type.toLowerCase() + " about " + subtopic + " in " + language + "."));
+        }
+        return resources;
+    }
+
+    // The batch prompt ends with the JSON array of {"id", "title"} it asks about
+    private List<JsonNode> subtopics(String prompt) {
+        List<JsonNode> subtopics = new ArrayList<>();
+        JsonNode array = readJsonAfter(prompt, "Subtopics (JSON array of id and title):");
+        if (array != null && array.isArray()) {
+            array.forEach(subtopics::add);
+        }
+        return subtopics;
+    }
+
+    // Reads the one JSON value that follows marker, ignoring whatever text comes after it
+    private JsonNode readJsonAfter(String prompt, String marker) {
+        int start = prompt.indexOf(marker);
+        if (start == -1) {
+            return null;
+        }
+        try (JsonParser parser = objectMapper.createParser(prompt.substring(start + marker.length()))) {
+            return objectMapper.readTree(parser);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void stream(HttpExchange exchange, String model, String content, Map<String, Object> usage, long latencyMillis)
+            throws IOException, InterruptedException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream body = exchange.getResponseBody();
+        int chunks = (content.length() + streamChunkChars - 1) / streamChunkChars;
+        long pauseMillis = chunks == 0 ? latencyMillis : latencyMillis / chunks;
+        for (int from = 0; from < content.length(); from += streamChunkChars) {
+            Thread.sleep(pauseMillis);
+            String delta = content.substring(from, Math.min(content.length(), from + streamChunkChars));
+            writeEvent(body, Map.of("id", "chatcmpl-stand-in", "object", "chat.completion.chunk", "model", model,
+                    "choices", List.of(Map.of("index", 0, "delta", Map.of("content", delta)))));
+        }
+        if (usage != null) {
+            writeEvent(body, Map.of("id", "chatcmpl-stand-in", "object", "chat.completion.chunk", "model", model,
+                    "choices", List.of(), "usage", usage));
+        }
+        body.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+        body.flush();
+    }
+
+    private void writeEvent(OutputStream body, Object chunk) throws IOException {
+        body.write(("data: " + objectMapper.writeValueAsString(chunk) + "\n\n").getBytes(StandardCharsets.UTF_8));
+        body.flush();
+    }
+
+    private void sendRateLimited(HttpExchange exchange, String message) throws IOException {
+        exchange.getResponseHeaders().set("retry-after-ms", String.valueOf(retryAfter.toMillis()));
+        sendJson(exchange, 429, error(message));
+    }
+
+    private void sendJson(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static Map<String, Object> error(String message) {
+        return Map.of("error", Map.of("message", message, "type", "stand_in_error"));
+    }
+
+    private static int tokens(String text) {
+        return (text.length() + 3) / 4;
+    }
+
+    private static String match(Pattern pattern, String text, String fallback) {
+        Matcher matcher = pattern.matcher(text);
+        return matcher.find() ? matcher.group(1).trim() : fallback;
+    }
+
+    private static String firstText(JsonNode node, String... fields) {
+        for (String field : fields) {
+            if (node.path(field).isTextual()) {
+                return node.path(field).asText();
+            }
+        }
+        return null;
+    }
+
+    private static String slug(String text) {
+        return text.toLowerCase().replaceAll("[^a-z0-9]+", "-").replaceAll("^-|-$", "");
+    }
+}
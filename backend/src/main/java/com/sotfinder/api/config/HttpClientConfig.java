@@ -0,0 +1,52 @@
+package com.sotfinder.api.config;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The one outbound HTTP client, shared by the LLM client and the curriculum config fetch. It
+ * prefers HTTP/2, so concurrent LLM calls are multiplexed over a pooled connection per host, and
+ * runs its handlers on virtual threads. Request timeouts are set per endpoint by the callers.
+ */
+@Configuration
+public class HttpClientConfig {
+
+    // Not a bean of its own: an Executor bean would replace Spring Boot's default task executor
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Bean
+    public HttpClient httpClient(@Value("${http.client.connect-timeout:PT10S}") Duration connectTimeout,
+                                 @Value("${http.client.keep-alive:PT5M}") Duration keepAlive,
+                                 @Value("${http.client.max-pool-size:0}") int maxPoolSize) {
+        // The JDK client reads its pool settings from system properties once, when the first client is built;
+        // an explicit -D on the command line wins
+        setIfAbsent("jdk.httpclient.keepalive.timeout", String.valueOf(keepAlive.toSeconds()));
+        setIfAbsent("jdk.httpclient.keepalive.timeout.h2", String.valueOf(keepAlive.toSeconds()));
+        setIfAbsent("jdk.httpclient.connectionPoolSize", String.valueOf(maxPoolSize));
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2) // Falls back to HTTP/1.1 where the server does not offer h2
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(executor)
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static void setIfAbsent(String key, String value) {
+        if (System.getProperty(key) == null) {
+            System.setProperty(key, value);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.sotfinder.api.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * The curriculum tables used to get their ids from identity columns and now draw them from pooled
+ * sequences. When the schema update creates those sequences they start at 1, below the ids already
+ * in the tables, so move each sequence past its table's highest id on startup. Sequences that are
+ * already ahead are left where they are.
+ */
+@Component
+public class IdSequenceAligner {
+
+    // Table -> id column; each table's sequence is named <table>_seq
+    private static final Map<String, String> ID_COLUMNS = Map.of(
+            "curriculums", "id",
+            "learning_levels", "id",
+            "topics", "pk_id",
+            "canonical_sources", "pk_id",
+            "practice_projects", "id",
+            "source_references", "id",
+            "learning_resources", "id"
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Depends on the EntityManagerFactory so this runs after Hibernate has created the sequences
+    public IdSequenceAligner(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void alignSequences() {
+        ID_COLUMNS.forEach((table, idColumn) -> {
+            try {
+                jdbcTemplate.queryForObject("select setval('" + table + "_seq', greatest("
+                        + "(select coalesce(max(" + idColumn + "), 0) from " + table + "), "
+                        + "(select last_value from " + table + "_seq)))", Long.class);
+            } catch (RuntimeException e) {
+                System.err.println("IdSequenceAligner: Failed to align " + table + "_seq: " + e.getMessage());
+            }
+        });
+    }
+}
@@ -0,0 +1,28 @@
+package com.sotfinder.api.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Checks the {@code X-Admin-Token} header of the admin endpoints against {@code admin.api-token}.
+ * Without a configured token no request is an admin request.
+ */
+@Component
+class AdminToken {
+
+    private final String adminToken;
+
+    AdminToken(@Value("${admin.api-token:}") String adminToken) {
+        this.adminToken = adminToken;
+    }
+
+    boolean matches(String token) {
+        if (adminToken == null || adminToken.isBlank() || token == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(adminToken.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,11 +1,16 @@
 package com.sotfinder.api.controller;
 
-import com.sotfinder.api.language.dto.CurriculumDTO;
+import com.sotfinder.api.language.service.CurriculumPayload;
 import com.sotfinder.api.language.service.LanguageCurriculumService;
 import com.sotfinder.api.service.JsonDataService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -29,21 +34,79 @@ public class CurriculumController { // Renamed from MetadataController
     }
 
     @GetMapping("/{language}/learning-resources")
-    public ResponseEntity<CurriculumDTO> getLearningResources(@PathVariable String language) {
-        CurriculumDTO curriculum = languageCurriculumService.getCurriculum(language);
-        if (curriculum != null) {
-            return ResponseEntity.ok(curriculum);
-        }
-        return ResponseEntity.notFound().build();
+    public ResponseEntity<byte[]> getLearningResources(@PathVariable String language,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return curriculumResponse(language, ifNoneMatch, acceptEncoding);
     }
 
     // Existing /curriculum/{language}/curriculum endpoint should also return the unified CurriculumDTO
     @GetMapping("/{language}/curriculum")
-    public ResponseEntity<CurriculumDTO> getCurriculum(@PathVariable String language) {
-        CurriculumDTO curriculum = languageCurriculumService.getCurriculum(language);
-        if (curriculum != null) {
-            return ResponseEntity.ok(curriculum);
+    public ResponseEntity<byte[]> getCurriculum(@PathVariable String language,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return curriculumResponse(language, ifNoneMatch, acceptEncoding);
+    }
+
+    // Writes the pre-serialized (and, if accepted, precompressed) CurriculumDTO JSON,
+    // or 304 when the client already has this version
+    private ResponseEntity<byte[]> curriculumResponse(String language, String ifNoneMatch, String acceptEncoding) {
+        CurriculumPayload payload = languageCurriculumService.getCurriculumPayload(language);
+        if (payload == null) {
+            return ResponseEntity.notFound().build();
+        }
+        boolean gzip = acceptsGzip(acceptEncoding);
+        String etag = gzip ? payload.gzipEtag() : payload.etag();
+        if (payload.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache())
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(payload.gzipJson());
+        }
+        return response.body(payload.json());
+    }
+
+    // An explicit gzip (or x-gzip) entry wins over "*", so "gzip;q=0, *" refuses gzip
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzipQuality = null;
+        Double wildcardQuality = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim().toLowerCase();
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                gzipQuality = Math.max(gzipQuality != null ? gzipQuality : 0, quality(parts));
+            } else if (name.equals("*")) {
+                wildcardQuality = quality(parts);
+            }
+        }
+        Double effective = gzipQuality != null ? gzipQuality : wildcardQuality;
+        return effective != null && effective > 0;
+    }
+
+    // The q-value of one Accept-Encoding entry; 1 when absent, 0 (refused) when unparseable
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String[] parameter = parts[i].split("=", 2);
+            if (parameter.length == 2 && parameter[0].trim().equalsIgnoreCase("q")) {
+                try {
+                    return Double.parseDouble(parameter[1].trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
         }
-        return ResponseEntity.notFound().build();
+        return 1;
     }
 }
@@ -0,0 +1,111 @@
+package com.sotfinder.api.controller;
+
+import com.sotfinder.api.language.dto.CurriculumDTO;
+import com.sotfinder.api.language.dto.StreamedTopicDTO;
+import com.sotfinder.api.language.service.LanguageCurriculumService;
+import com.sotfinder.api.service.PromptTemplateRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admin-only view of an on-demand curriculum generation as server-sent events: a {@code topic}
+ * event for every top-level topic as soon as the LLM has written it, then {@code done} with the
+ * timings, or {@code error}. The generated curriculum is not stored; the nightly load owns that.
+ * Also reloads the prompt templates on demand. Both endpoints require the {@code X-Admin-Token}
+ * header to match {@code admin.api-token}; without a configured token they are disabled.
+ */
+@RestController
+@RequestMapping("/api/admin/curriculum")
+public class CurriculumGenerationController {
+
+    private final LanguageCurriculumService languageCurriculumService;
+    private final PromptTemplateRegistry promptTemplates;
+    private final AdminToken adminToken;
+    private final Duration streamTimeout;
+
+    public CurriculumGenerationController(LanguageCurriculumService languageCurriculumService,
+            PromptTemplateRegistry promptTemplates,
+            AdminToken adminToken,
+            @Value("${curriculum.generation.stream-timeout:PT10M}") Duration streamTimeout) {
+        this.languageCurriculumService = languageCurriculumService;
+        this.promptTemplates = promptTemplates;
+        this.adminToken = adminToken;
+        this.streamTimeout = streamTimeout;
+    }
+
+    @GetMapping(value = "/{language}/generate", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamGeneration(@PathVariable String language,
+            @RequestHeader(value = "X-Admin-Token", required = false) String token) {
+        if (!adminToken.matches(token)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+        long start = System.nanoTime();
+        AtomicLong firstTopicNanos = new AtomicLong(-1);
+        AtomicInteger topics = new AtomicInteger();
+
+        CompletableFuture<CurriculumDTO> generation = languageCurriculumService.streamCurriculumStructureAsync(language, topic -> {
+            firstTopicNanos.compareAndSet(-1, System.nanoTime() - start);
+            topics.incrementAndGet();
+            send(emitter, "topic", topic);
+        });
+        generation.whenComplete((curriculum, error) -> {
+            if (generation.isCancelled()) {
+                return; // The client went away
+            }
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                send(emitter, "error", Map.of("message", String.valueOf(cause.getMessage())));
+            } else {
+                send(emitter, "done", Map.of(
+                        "topics", topics.get(),
+                        "levels", curriculum.overallLearningPath() != null ? curriculum.overallLearningPath().size() : 0,
+                        "time_to_first_topic_ms", firstTopicNanos.get() < 0 ? -1 : firstTopicNanos.get() / 1_000_000,
+                        "total_ms", (System.nanoTime() - start) / 1_000_000));
+            }
+            emitter.complete();
+        });
+
+        // Stop the LLM call when the client disconnects or the stream times out
+        emitter.onCompletion(() -> generation.cancel(true));
+        emitter.onTimeout(() -> generation.cancel(true));
+        emitter.onError(error -> generation.cancel(true));
+        return ResponseEntity.ok(emitter);
+    }
+
+    // Re-reads the prompt templates, so edited prompts take effect without a restart
+    @PostMapping("/prompts/reload")
+    public ResponseEntity<List<String>> reloadPrompts(@RequestHeader(value = "X-Admin-Token", required = false) String token) {
+        if (!adminToken.matches(token)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(promptTemplates.reload());
+    }
+
+    private static void send(SseEmitter emitter, String event, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(event).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            // The client disconnected; onError/onCompletion cancel the generation
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.sotfinder.api.controller;
+
+import com.sotfinder.api.service.LlmUsageTracker;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Admin-only token usage of the LLM calls: totals per language and prompt type since startup,
+ * the load run in progress and the last finished one (see {@link LlmUsageTracker}). Requires the
+ * {@code X-Admin-Token} header like the other admin endpoints.
+ */
+@RestController
+@RequestMapping("/api/admin/llm")
+public class LlmUsageController {
+
+    private final LlmUsageTracker usageTracker;
+    private final AdminToken adminToken;
+
+    public LlmUsageController(LlmUsageTracker usageTracker, AdminToken adminToken) {
+        this.usageTracker = usageTracker;
+        this.adminToken = adminToken;
+    }
+
+    @GetMapping("/usage")
+    public ResponseEntity<LlmUsageTracker.UsageReport> getUsage(@RequestHeader(value = "X-Admin-Token", required = false) String token) {
+        if (!adminToken.matches(token)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(usageTracker.report());
+    }
+}
@@ -0,0 +1,14 @@
+package com.sotfinder.api.exception;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Work that was still running when its deadline passed. It is a {@link CancellationException}, so
+ * a future failed with it counts as cancelled and the cancellation reaches the calls behind it.
+ */
+public class DeadlineExceededException extends CancellationException {
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,41 @@
+package com.sotfinder.api.exception;
+
+/**
+ * A failed call to the LLM provider, classified so the retry policy and circuit breaker know
+ * whether trying again can help and whether the failure says anything about the provider's health.
+ */
+public class LlmCallException extends RuntimeException {
+
+    public enum Kind {
+        /** Timeouts, connection errors, 429s and 5xx: worth retrying, and counted against the provider. */
+        TRANSIENT,
+        /** The provider answered but the completion could not be used: worth retrying. */
+        MALFORMED,
+        /** The request itself was refused (4xx): retrying sends the same bad request. */
+        REJECTED,
+        /** The circuit breaker is open, so the call was not attempted. */
+        CIRCUIT_OPEN,
+        /** The token budget of the load run or of the language is used up, so the call was not attempted. */
+        BUDGET_EXHAUSTED
+    }
+
+    private final Kind kind;
+
+    public LlmCallException(Kind kind, String message) {
+        super(message);
+        this.kind = kind;
+    }
+
+    public LlmCallException(Kind kind, String message, Throwable cause) {
+        super(message, cause);
+        this.kind = kind;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public boolean isRetryable() {
+        return kind == Kind.TRANSIENT || kind == Kind.MALFORMED;
+    }
+}
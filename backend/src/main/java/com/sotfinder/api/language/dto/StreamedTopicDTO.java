@@ -0,0 +1,11 @@
+package com.sotfinder.api.language.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+// A top-level topic of a curriculum that is still being generated, sent as soon as it is complete
+public record StreamedTopicDTO(
+    @JsonProperty("level_index") int levelIndex, // Position of the level in overall_learning_path
+    String level, // Null when the LLM writes the level name after its topics
+    @JsonProperty("topic_index") int topicIndex, // Position of the topic within its level
+    TopicDTO topic
+) {}
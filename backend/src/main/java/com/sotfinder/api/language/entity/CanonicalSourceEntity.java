@@ -6,7 +6,8 @@ import jakarta.persistence.*;
 @Table(name = "canonical_sources")
 public class CanonicalSourceEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "canonical_sources_seq")
+    @SequenceGenerator(name = "canonical_sources_seq", sequenceName = "canonical_sources_seq", allocationSize = 50)
     private Long pk_id;
 
     @Column(name = "source_id", unique = true)
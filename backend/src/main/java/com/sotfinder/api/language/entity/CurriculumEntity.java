@@ -4,12 +4,15 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
 
 @Entity
 @Table(name = "curriculums")
 public class CurriculumEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "curriculums_seq")
+    @SequenceGenerator(name = "curriculums_seq", sequenceName = "curriculums_seq", allocationSize = 50)
     private Long id;
 
     private String language;
@@ -45,6 +48,27 @@ public class CurriculumEntity {
     @Column(name = "config_topics_hash")
     private String configTopicsHash;
 
+    // Per-topic hashes of the topics config (Merkle tree nodes), keyed by topic path
+    @ElementCollection
+    @CollectionTable(name = "curriculum_config_topic_hashes", joinColumns = @JoinColumn(name = "curriculum_id"))
+    @MapKeyColumn(name = "topic_path", length = 1024)
+    @Column(name = "topic_hash", length = 64)
+    private Map<String, String> configTopicHashes = new HashMap<>();
+
+    // Per-topic hashes of just the topic's own fields, without its subtopics, keyed by topic path
+    @ElementCollection
+    @CollectionTable(name = "curriculum_config_topic_own_hashes", joinColumns = @JoinColumn(name = "curriculum_id"))
+    @MapKeyColumn(name = "topic_path", length = 1024)
+    @Column(name = "topic_hash", length = 64)
+    private Map<String, String> configTopicOwnHashes = new HashMap<>();
+
+    @Column(name = "config_trust_profiles_hash")
+    private String configTrustProfilesHash;
+
+    // SHA-256 of the generated content (ignoring generatedAt), so an unchanged regeneration skips the write
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
     // Getters and Setters
     public Long getId() {
         return id;
@@ -164,4 +188,36 @@ public class CurriculumEntity {
     public void setConfigTopicsHash(String configTopicsHash) {
         this.configTopicsHash = configTopicsHash;
     }
+
+    public Map<String, String> getConfigTopicHashes() {
+        return configTopicHashes;
+    }
+
+    public void setConfigTopicHashes(Map<String, String> configTopicHashes) {
+        this.configTopicHashes = configTopicHashes;
+    }
+
+    public Map<String, String> getConfigTopicOwnHashes() {
+        return configTopicOwnHashes;
+    }
+
+    public void setConfigTopicOwnHashes(Map<String, String> configTopicOwnHashes) {
+        this.configTopicOwnHashes = configTopicOwnHashes;
+    }
+
+    public String getConfigTrustProfilesHash() {
+        return configTrustProfilesHash;
+    }
+
+    public void setConfigTrustProfilesHash(String configTrustProfilesHash) {
+        this.configTrustProfilesHash = configTrustProfilesHash;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
 }
@@ -0,0 +1,71 @@
+package com.sotfinder.api.language.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+
+// Denormalized copy of a finished CurriculumDTO, so a cold read is a single primary-key lookup
+@Entity
+@Table(name = "curriculum_snapshots")
+public class CurriculumSnapshotEntity {
+    @Id
+    @Column(length = 64)
+    private String language;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(columnDefinition = "jsonb", nullable = false)
+    private String document; // CurriculumDTO as JSON
+
+    // Same values as on the CurriculumEntity written in the same transaction
+    @Column(name = "config_topics_hash")
+    private String configTopicsHash;
+
+    @Column(name = "model_version")
+    private String modelVersion;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // Getters and Setters
+    public String getLanguage() {
+        return language;
+    }
+
+    public void setLanguage(String language) {
+        this.language = language;
+    }
+
+    public String getDocument() {
+        return document;
+    }
+
+    public void setDocument(String document) {
+        this.document = document;
+    }
+
+    public String getConfigTopicsHash() {
+        return configTopicsHash;
+    }
+
+    public void setConfigTopicsHash(String configTopicsHash) {
+        this.configTopicsHash = configTopicsHash;
+    }
+
+    public String getModelVersion() {
+        return modelVersion;
+    }
+
+    public void setModelVersion(String modelVersion) {
+        this.modelVersion = modelVersion;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -8,7 +8,8 @@ import java.util.ArrayList;
 @Table(name = "learning_levels")
 public class LearningLevelEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "learning_levels_seq")
+    @SequenceGenerator(name = "learning_levels_seq", sequenceName = "learning_levels_seq", allocationSize = 50)
     private Long id;
 
     private String level;
@@ -6,7 +6,8 @@ import jakarta.persistence.*;
 @Table(name = "learning_resources")
 public class LearningResourceEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "learning_resources_seq")
+    @SequenceGenerator(name = "learning_resources_seq", sequenceName = "learning_resources_seq", allocationSize = 50)
     private Long id;
 
     private String title;
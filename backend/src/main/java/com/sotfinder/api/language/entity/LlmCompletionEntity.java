@@ -0,0 +1,75 @@
+package com.sotfinder.api.language.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "llm_completion_cache", indexes = @Index(name = "idx_llm_completion_cache_last_accessed", columnList = "last_accessed_at"))
+public class LlmCompletionEntity {
+    @Id
+    @Column(name = "cache_key", length = 64)
+    private String cacheKey; // SHA-256 of model + rendered prompt
+
+    private String model;
+
+    @Column(columnDefinition = "TEXT")
+    private String content;
+
+    @Column(name = "size_bytes")
+    private int sizeBytes;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "last_accessed_at")
+    private LocalDateTime lastAccessedAt;
+
+    // Getters and Setters
+    public String getCacheKey() {
+        return cacheKey;
+    }
+
+    public void setCacheKey(String cacheKey) {
+        this.cacheKey = cacheKey;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public void setModel(String model) {
+        this.model = model;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public int getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public void setSizeBytes(int sizeBytes) {
+        this.sizeBytes = sizeBytes;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getLastAccessedAt() {
+        return lastAccessedAt;
+    }
+
+    public void setLastAccessedAt(LocalDateTime lastAccessedAt) {
+        this.lastAccessedAt = lastAccessedAt;
+    }
+}
@@ -8,7 +8,8 @@ import java.util.ArrayList;
 @Table(name = "practice_projects")
 public class PracticeProjectEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "practice_projects_seq")
+    @SequenceGenerator(name = "practice_projects_seq", sequenceName = "practice_projects_seq", allocationSize = 50)
     private Long id;
 
     private String title;
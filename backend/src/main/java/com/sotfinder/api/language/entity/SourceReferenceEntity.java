@@ -6,7 +6,8 @@ import jakarta.persistence.*;
 @Table(name = "source_references")
 public class SourceReferenceEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "source_references_seq")
+    @SequenceGenerator(name = "source_references_seq", sequenceName = "source_references_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "source_id")
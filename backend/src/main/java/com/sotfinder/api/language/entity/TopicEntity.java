@@ -8,7 +8,8 @@ import java.util.ArrayList;
 @Table(name = "topics")
 public class TopicEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "topics_seq")
+    @SequenceGenerator(name = "topics_seq", sequenceName = "topics_seq", allocationSize = 50)
     private Long pk_id; // Primary key for the entity
 
     @Column(name = "topic_id", unique = true) // Business ID, if it needs to be unique
@@ -25,17 +26,17 @@ public class TopicEntity {
     @Column(name = "estimated_hours")
     private int estimatedHours;
 
-    @ElementCollection(fetch = FetchType.EAGER)
+    @ElementCollection
     @CollectionTable(name = "topic_prerequisites", joinColumns = @JoinColumn(name = "topic_pk_id"))
     @Column(name = "prerequisite_id")
     private List<String> prerequisites = new ArrayList<>();
 
-    @ElementCollection(fetch = FetchType.EAGER)
+    @ElementCollection
     @CollectionTable(name = "topic_outcomes", joinColumns = @JoinColumn(name = "topic_pk_id"))
     @Column(name = "outcome_description")
     private List<String> outcomes = new ArrayList<>();
 
-    @ElementCollection(fetch = FetchType.EAGER)
+    @ElementCollection
     @CollectionTable(name = "topic_example_exercises", joinColumns = @JoinColumn(name = "topic_pk_id"))
     @Column(name = "exercise_description")
     private List<String> exampleExercises = new ArrayList<>();
@@ -43,7 +44,7 @@ public class TopicEntity {
     @OneToMany(mappedBy = "topic", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<SourceReferenceEntity> helpfulReferences = new ArrayList<>();
 
-    @ElementCollection(fetch = FetchType.EAGER)
+    @ElementCollection
     @CollectionTable(name = "topic_explainability", joinColumns = @JoinColumn(name = "topic_pk_id"))
     @Column(name = "explainability_source")
     private List<String> explainability = new ArrayList<>();
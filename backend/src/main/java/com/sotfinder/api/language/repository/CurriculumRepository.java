@@ -2,6 +2,8 @@ package com.sotfinder.api.language.repository;
 
 import com.sotfinder.api.language.entity.CurriculumEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -9,4 +11,9 @@ import java.util.Optional;
 @Repository
 public interface CurriculumRepository extends JpaRepository<CurriculumEntity, Long> {
     Optional<CurriculumEntity> findByLanguage(String language);
+
+    // Cheap check whether a cached curriculum is still current, without loading the whole tree
+    @Query("select new com.sotfinder.api.language.repository.CurriculumVersion(c.configTopicsHash, c.modelVersion) "
+            + "from CurriculumEntity c where c.language = :language")
+    Optional<CurriculumVersion> findVersionByLanguage(@Param("language") String language);
 }
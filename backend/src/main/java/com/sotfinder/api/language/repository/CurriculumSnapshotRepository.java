@@ -0,0 +1,9 @@
+package com.sotfinder.api.language.repository;
+
+import com.sotfinder.api.language.entity.CurriculumSnapshotEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CurriculumSnapshotRepository extends JpaRepository<CurriculumSnapshotEntity, String> {
+}
@@ -0,0 +1,9 @@
+package com.sotfinder.api.language.repository;
+
+/**
+ * What a persisted curriculum was generated from: the hash of its topics config and the LLM model.
+ * Two curricula with the same version have the same content, so a cached copy stays valid until
+ * the stored version moves on.
+ */
+public record CurriculumVersion(String configTopicsHash, String modelVersion) {
+}
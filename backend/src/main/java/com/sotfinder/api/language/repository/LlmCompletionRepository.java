@@ -0,0 +1,41 @@
+package com.sotfinder.api.language.repository;
+
+import com.sotfinder.api.language.entity.LlmCompletionEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface LlmCompletionRepository extends JpaRepository<LlmCompletionEntity, String> {
+
+    @Transactional
+    @Modifying
+    @Query("update LlmCompletionEntity c set c.lastAccessedAt = :accessedAt where c.cacheKey = :cacheKey")
+    int touch(@Param("cacheKey") String cacheKey, @Param("accessedAt") LocalDateTime accessedAt);
+
+    @Transactional
+    @Modifying
+    @Query("delete from LlmCompletionEntity c where c.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+
+    // Keeps the most recently used entries that fit into maxEntries rows and maxBytes of content
+    @Transactional
+    @Modifying
+    @Query(value = """
+            DELETE FROM llm_completion_cache WHERE cache_key IN (
+                SELECT cache_key FROM (
+                    SELECT cache_key,
+                           ROW_NUMBER() OVER (ORDER BY last_accessed_at DESC, cache_key) AS entry_rank,
+                           SUM(size_bytes) OVER (ORDER BY last_accessed_at DESC, cache_key) AS running_bytes
+                    FROM llm_completion_cache
+                ) ranked
+                WHERE entry_rank > :maxEntries OR running_bytes > :maxBytes
+            )
+            """, nativeQuery = true)
+    int deleteLeastRecentlyUsedBeyond(@Param("maxEntries") long maxEntries, @Param("maxBytes") long maxBytes);
+}
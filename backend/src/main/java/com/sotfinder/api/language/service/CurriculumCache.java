@@ -0,0 +1,175 @@
+package com.sotfinder.api.language.service;
+
+import com.sotfinder.api.language.dto.CurriculumDTO;
+import com.sotfinder.api.language.repository.CurriculumRepository;
+import com.sotfinder.api.language.repository.CurriculumVersion;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * In-memory cache of curricula and their serialized payloads, bounded by entry count and by
+ * approximate weight in bytes (least recently used entries go first). Entries expire after a TTL
+ * and are periodically revalidated against the {@link CurriculumVersion} stored in the database,
+ * so a curriculum persisted by another node replaces the cached one without a restart.
+ * Statistics are published as {@code curriculum.cache.*} metrics.
+ */
+@Component
+public class CurriculumCache {
+
+    // version: what the persisted curriculum was generated from
+    public record Entry(CurriculumDTO curriculum, CurriculumPayload payload, CurriculumVersion version) {
+
+        // Serialized bytes plus the DTO graph, which takes roughly twice the size of its JSON
+        long weight() {
+            return 3L * payload.json().length + payload.gzipJson().length;
+        }
+    }
+
+    private record Slot(Entry entry, long loadedAt, long validatedAt) {
+    }
+
+    private final CurriculumRepository curriculumRepository;
+    // Access-ordered, so iteration starts at the least recently used entry; guarded by this
+    private final LinkedHashMap<String, Slot> slots = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalWeight;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter sizeEvictions;
+    private final Counter expiredEvictions;
+    private final Counter staleEvictions;
+    private final Counter invalidations;
+
+    @Value("${curriculum.cache.max-entries:64}")
+    private int maxEntries;
+    @Value("${curriculum.cache.max-bytes:67108864}")
+    private long maxBytes;
+    @Value("${curriculum.cache.ttl:PT12H}")
+    private Duration ttl;
+    @Value("${curriculum.cache.revalidate-after:PT1M}")
+    private Duration revalidateAfter;
+
+    public CurriculumCache(CurriculumRepository curriculumRepository, MeterRegistry meterRegistry) {
+        this.curriculumRepository = curriculumRepository;
+        this.hits = meterRegistry.counter("curriculum.cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("curriculum.cache.requests", "result", "miss");
+        this.sizeEvictions = meterRegistry.counter("curriculum.cache.evictions", "cause", "size");
+        this.expiredEvictions = meterRegistry.counter("curriculum.cache.evictions", "cause", "expired");
+        this.staleEvictions = meterRegistry.counter("curriculum.cache.evictions", "cause", "stale");
+        this.invalidations = meterRegistry.counter("curriculum.cache.evictions", "cause", "invalidated");
+        meterRegistry.gauge("curriculum.cache.size", this, CurriculumCache::size);
+        meterRegistry.gauge("curriculum.cache.weight", this, CurriculumCache::weight);
+    }
+
+    // Null on a miss, including when the cached entry expired or a newer version was persisted
+    public Entry get(String langKey) {
+        Slot slot;
+        synchronized (this) {
+            slot = slots.get(langKey);
+        }
+        if (slot == null) {
+            misses.increment();
+            return null;
+        }
+
+        long now = System.nanoTime();
+        if (now - slot.loadedAt() > ttl.toNanos()) {
+            remove(langKey, slot, expiredEvictions);
+            misses.increment();
+            return null;
+        }
+        if (now - slot.validatedAt() > revalidateAfter.toNanos()) {
+            Optional<CurriculumVersion> stored = storedVersion(langKey);
+            if (stored.isPresent() && !stored.get().equals(slot.entry().version())) {
+                remove(langKey, slot, staleEvictions);
+                misses.increment();
+                return null;
+            }
+            synchronized (this) {
+                if (slots.get(langKey) == slot) {
+                    slots.put(langKey, new Slot(slot.entry(), slot.loadedAt(), now));
+                }
+            }
+        }
+        hits.increment();
+        return slot.entry();
+    }
+
+    public void put(String langKey, Entry entry) {
+        long now = System.nanoTime();
+        synchronized (this) {
+            Slot previous = slots.put(langKey, new Slot(entry, now, now));
+            if (previous != null) {
+                totalWeight -= previous.entry().weight();
+            }
+            totalWeight += entry.weight();
+
+            // Drop expired entries first, then least recently used ones until within bounds.
+            // The entry just added is kept even if it alone exceeds max-bytes.
+            Iterator<Map.Entry<String, Slot>> eldest = slots.entrySet().iterator();
+            while (eldest.hasNext()) {
+                Map.Entry<String, Slot> candidate = eldest.next();
+                if (candidate.getKey().equals(langKey)) {
+                    continue;
+                }
+                boolean expired = now - candidate.getValue().loadedAt() > ttl.toNanos();
+                boolean overBounds = slots.size() > maxEntries || totalWeight > maxBytes;
+                if (expired || overBounds) {
+                    eldest.remove();
+                    totalWeight -= candidate.getValue().entry().weight();
+                    (expired ? expiredEvictions : sizeEvictions).increment();
+                }
+            }
+        }
+    }
+
+    public void invalidate(String langKey) {
+        synchronized (this) {
+            Slot removed = slots.remove(langKey);
+            if (removed == null) {
+                return;
+            }
+            totalWeight -= removed.entry().weight();
+        }
+        invalidations.increment();
+    }
+
+    public synchronized int size() {
+        return slots.size();
+    }
+
+    public synchronized long weight() {
+        return totalWeight;
+    }
+
+    private Optional<CurriculumVersion> storedVersion(String langKey) {
+        try {
+            return curriculumRepository.findVersionByLanguage(langKey);
+        } catch (RuntimeException e) {
+            // Keep serving the cached curriculum while the database is unavailable
+            System.err.println("CurriculumCache: Failed to revalidate " + langKey + ": " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private void remove(String langKey, Slot slot, Counter cause) {
+        synchronized (this) {
+            if (slots.get(langKey) != slot) {
+                return; // Already replaced by a concurrent put
+            }
+            slots.remove(langKey);
+            totalWeight -= slot.entry().weight();
+        }
+        cause.increment();
+    }
+}
@@ -0,0 +1,167 @@
+package com.sotfinder.api.language.service;
+
+import com.sotfinder.api.language.dto.CanonicalSourceDTO;
+import com.sotfinder.api.language.dto.CurriculumDTO;
+import com.sotfinder.api.language.dto.LearningLevelDTO;
+import com.sotfinder.api.language.dto.LearningResourceDTO;
+import com.sotfinder.api.language.dto.PracticeProjectDTO;
+import com.sotfinder.api.language.dto.SourceReferenceDTO;
+import com.sotfinder.api.language.dto.TopicDTO;
+import com.sotfinder.api.language.repository.CurriculumVersion;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Loads a whole curriculum straight into DTOs with a fixed number of set-based queries (one per
+ * table, 14 in total) instead of walking the entity graph, which costs several queries per topic.
+ * Each query selects plain columns of a single collection, so there are no cartesian products;
+ * the rows are stitched into the tree in memory. Topics are ordered by their {@code order} and
+ * otherwise, like all other siblings, by primary key, which is the order they were inserted in.
+ */
+@Service
+public class CurriculumGraphLoader {
+
+    public record LoadedCurriculum(CurriculumDTO curriculum, CurriculumVersion version) {
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Repeatable read gives all queries one snapshot, so a concurrent save can't be seen half-applied
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public Optional<LoadedCurriculum> loadByLanguage(String language) {
+        List<Object[]> curricula = rows(
+                "select c.id, c.language, c.generatedAt, c.explanation, c.modelVersion, c.configTopicsHash "
+                        + "from CurriculumEntity c where c.language = :language", "language", language);
+        if (curricula.isEmpty()) {
+            return Optional.empty();
+        }
+        Object[] curriculum = curricula.get(0);
+        Long id = (Long) curriculum[0];
+
+        List<String> coreSources = strings("select s from CurriculumEntity c join c.coreSources s where c.id = :id", id);
+        List<String> supplementalSources = strings("select s from CurriculumEntity c join c.supplementalSources s where c.id = :id", id);
+
+        List<CanonicalSourceDTO> canonicalSources = new ArrayList<>();
+        for (Object[] row : rows("select s.id, s.title, s.url, s.steward, s.type, s.confidence, s.shortSummary "
+                + "from CanonicalSourceEntity s where s.curriculum.id = :id order by s.pk_id", "id", id)) {
+            canonicalSources.add(new CanonicalSourceDTO((String) row[0], (String) row[1], (String) row[2], (String) row[3],
+                    (String) row[4], (Double) row[5], (String) row[6]));
+        }
+
+        Map<Long, List<String>> projectOutcomes = grouped(
+                "select p.id, o from PracticeProjectEntity p join p.outcomes o where p.curriculum.id = :id", id);
+        List<PracticeProjectDTO> practiceProjects = new ArrayList<>();
+        for (Object[] row : rows("select p.id, p.title, p.description, p.difficulty, p.estimatedHours "
+                + "from PracticeProjectEntity p where p.curriculum.id = :id order by p.id", "id", id)) {
+            practiceProjects.add(new PracticeProjectDTO((String) row[1], (String) row[2], (String) row[3], (Integer) row[4],
+                    projectOutcomes.getOrDefault((Long) row[0], new ArrayList<>())));
+        }
+
+        List<LearningLevelDTO> levels = new ArrayList<>();
+        Map<Long, List<TopicDTO>> topicsByLevel = new HashMap<>();
+        for (Object[] row : rows("select l.id, l.level, l.estimatedHours from LearningLevelEntity l "
+                + "where l.curriculum.id = :id order by l.id", "id", id)) {
+            List<TopicDTO> topics = new ArrayList<>();
+            topicsByLevel.put((Long) row[0], topics);
+            levels.add(new LearningLevelDTO((String) row[1], (Integer) row[2], topics));
+        }
+
+        // Subtopics carry their level too, so every topic of the curriculum is reachable through its level
+        String topicsOfCurriculum = " where t.learningLevel.curriculum.id = :id";
+        Map<Long, List<String>> prerequisites = grouped("select t.pk_id, v from TopicEntity t join t.prerequisites v" + topicsOfCurriculum, id);
+        Map<Long, List<String>> outcomes = grouped("select t.pk_id, v from TopicEntity t join t.outcomes v" + topicsOfCurriculum, id);
+        Map<Long, List<String>> exercises = grouped("select t.pk_id, v from TopicEntity t join t.exampleExercises v" + topicsOfCurriculum, id);
+        Map<Long, List<String>> explainability = grouped("select t.pk_id, v from TopicEntity t join t.explainability v" + topicsOfCurriculum, id);
+
+        Map<Long, List<SourceReferenceDTO>> references = new HashMap<>();
+        for (Object[] row : rows("select r.topic.pk_id, r.sourceId, r.url, r.snippet, r.shortEvidence from SourceReferenceEntity r "
+                + "where r.topic.learningLevel.curriculum.id = :id order by r.id", "id", id)) {
+            references.computeIfAbsent((Long) row[0], key -> new ArrayList<>())
+                    .add(new SourceReferenceDTO((String) row[1], (String) row[2], (String) row[3], (String) row[4]));
+        }
+
+        Map<Long, List<LearningResourceDTO>> resources = new HashMap<>();
+        for (Object[] row : rows("select r.topic.pk_id, r.title, r.url, r.type, r.authorityScore, r.shortSummary from LearningResourceEntity r "
+                + "where r.topic.learningLevel.curriculum.id = :id order by r.id", "id", id)) {
+            resources.computeIfAbsent((Long) row[0], key -> new ArrayList<>())
+                    .add(new LearningResourceDTO((String) row[1], (String) row[2], (String) row[3], (Double) row[4], (String) row[5]));
+        }
+
+        Map<Long, List<TopicDTO>> subtopicsByTopic = new HashMap<>();
+        List<Object[]> topicRows = rows("select t.pk_id, t.learningLevel.id, p.pk_id, t.id, t.title, t.description, t.order, t.estimatedHours "
+                + "from TopicEntity t left join t.parentTopic p" + topicsOfCurriculum + " order by t.order, t.pk_id", "id", id);
+        List<TopicDTO> topics = new ArrayList<>();
+        for (Object[] row : topicRows) {
+            Long pk = (Long) row[0];
+            List<TopicDTO> subtopics = new ArrayList<>();
+            subtopicsByTopic.put(pk, subtopics);
+            topics.add(new TopicDTO(
+                    (String) row[3],
+                    (String) row[4],
+                    (String) row[5],
+                    (Integer) row[6],
+                    (Integer) row[7],
+                    prerequisites.getOrDefault(pk, new ArrayList<>()),
+                    outcomes.getOrDefault(pk, new ArrayList<>()),
+                    exercises.getOrDefault(pk, new ArrayList<>()),
+                    references.getOrDefault(pk, new ArrayList<>()),
+                    explainability.getOrDefault(pk, new ArrayList<>()),
+                    subtopics,
+                    resources.getOrDefault(pk, new ArrayList<>())
+            ));
+        }
+        // Attach in a second pass so the tree doesn't depend on parents having lower ids than their subtopics
+        for (int i = 0; i < topicRows.size(); i++) {
+            Object[] row = topicRows.get(i);
+            List<TopicDTO> siblings = row[2] != null ? subtopicsByTopic.get((Long) row[2]) : topicsByLevel.get((Long) row[1]);
+            if (siblings != null) {
+                siblings.add(topics.get(i));
+            }
+        }
+
+        CurriculumDTO dto = new CurriculumDTO(
+                (String) curriculum[1],
+                (LocalDateTime) curriculum[2],
+                canonicalSources,
+                levels,
+                coreSources,
+                supplementalSources,
+                practiceProjects,
+                (String) curriculum[3],
+                (String) curriculum[4]
+        );
+        return Optional.of(new LoadedCurriculum(dto, new CurriculumVersion((String) curriculum[5], (String) curriculum[4])));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> rows(String jpql, String parameter, Object value) {
+        return entityManager.createQuery(jpql).setParameter(parameter, value).getResultList();
+    }
+
+    private List<String> strings(String jpql, Long curriculumId) {
+        return entityManager.createQuery(jpql, String.class).setParameter("id", curriculumId).getResultList();
+    }
+
+    // Element-collection values per owner id, in the order the database returns them (as Hibernate would load them)
+    private Map<Long, List<String>> grouped(String jpql, Long curriculumId) {
+        Map<Long, List<String>> grouped = new LinkedHashMap<>();
+        for (Object[] row : rows(jpql, "id", curriculumId)) {
+            grouped.computeIfAbsent((Long) row[0], key -> new ArrayList<>()).add((String) row[1]);
+        }
+        return grouped;
+    }
+}
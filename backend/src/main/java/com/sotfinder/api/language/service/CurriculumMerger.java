@@ -0,0 +1,281 @@
+package com.sotfinder.api.language.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sotfinder.api.language.dto.CanonicalSourceDTO;
+import com.sotfinder.api.language.dto.CurriculumDTO;
+import com.sotfinder.api.language.dto.LearningLevelDTO;
+import com.sotfinder.api.language.dto.LearningResourceDTO;
+import com.sotfinder.api.language.dto.PracticeProjectDTO;
+import com.sotfinder.api.language.dto.SourceReferenceDTO;
+import com.sotfinder.api.language.dto.TopicDTO;
+import com.sotfinder.api.language.entity.CanonicalSourceEntity;
+import com.sotfinder.api.language.entity.CurriculumEntity;
+import com.sotfinder.api.language.entity.LearningLevelEntity;
+import com.sotfinder.api.language.entity.LearningResourceEntity;
+import com.sotfinder.api.language.entity.PracticeProjectEntity;
+import com.sotfinder.api.language.entity.SourceReferenceEntity;
+import com.sotfinder.api.language.entity.TopicEntity;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Applies a regenerated curriculum to the persisted entity graph in place instead of replacing the
+ * graph. Levels are matched by position, topics by business id (or title) and position in the
+ * tree, and sources, projects, references and resources by their natural keys. Matched rows are
+ * updated (Hibernate only writes the ones whose values actually changed), the rest are inserted or
+ * deleted.
+ */
+@Service
+public class CurriculumMerger {
+
+    private final CurriculumMapper curriculumMapper;
+    private final ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public CurriculumMerger(CurriculumMapper curriculumMapper, ObjectMapper objectMapper) {
+        this.curriculumMapper = curriculumMapper;
+        this.objectMapper = objectMapper;
+    }
+
+    // Hash of everything the LLM generated; generatedAt changes on every run, so it is left out
+    public String contentHash(CurriculumDTO curriculum) {
+        CurriculumDTO content = new CurriculumDTO(
+                curriculum.language(),
+                null,
+                curriculum.canonicalSources(),
+                curriculum.overallLearningPath(),
+                curriculum.coreSources(),
+                curriculum.supplementalSources(),
+                curriculum.practiceProjects(),
+                curriculum.explanation(),
+                curriculum.modelVersion()
+        );
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(content));
+            return HexFormat.of().formatHex(hash);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new RuntimeException("Failed to hash curriculum for " + curriculum.language(), e);
+        }
+    }
+
+    /**
+     * Merges {@code curriculum} into the managed {@code existing} graph. Returns false without
+     * touching the graph when the content hash shows nothing changed.
+     */
+    public boolean merge(CurriculumEntity existing, CurriculumDTO curriculum, String contentHash) {
+        if (contentHash.equals(existing.getContentHash())) {
+            return false;
+        }
+        existing.setContentHash(contentHash);
+        existing.setGeneratedAt(curriculum.generatedAt() != null ? curriculum.generatedAt() : existing.getGeneratedAt());
+        existing.setExplanation(curriculum.explanation());
+        existing.setModelVersion(curriculum.modelVersion());
+        replaceContents(existing.getCoreSources(), orEmpty(curriculum.coreSources()));
+        replaceContents(existing.getSupplementalSources(), orEmpty(curriculum.supplementalSources()));
+
+        replaceContents(existing.getCanonicalSources(), matchByKey(existing.getCanonicalSources(), CanonicalSourceEntity::getId,
+                orEmpty(curriculum.canonicalSources()), CanonicalSourceDTO::id,
+                dto -> curriculumMapper.convertCanonicalSourceToEntity(dto, existing),
+                (entity, dto) -> {
+                    entity.setTitle(dto.title());
+                    entity.setUrl(dto.url());
+                    entity.setSteward(dto.steward());
+                    entity.setType(dto.type());
+                    entity.setConfidence(dto.confidence());
+                    entity.setShortSummary(dto.shortSummary());
+                }));
+
+        replaceContents(existing.getPracticeProjects(), matchByKey(existing.getPracticeProjects(),
+                project -> LearningResourceEnricher.titleKey(project.getTitle()),
+                orEmpty(curriculum.practiceProjects()), project -> LearningResourceEnricher.titleKey(project.title()),
+                dto -> curriculumMapper.convertPracticeProjectToEntity(dto, existing),
+                (entity, dto) -> {
+                    entity.setTitle(dto.title());
+                    entity.setDescription(dto.description());
+                    entity.setDifficulty(dto.difficulty());
+                    entity.setEstimatedHours(dto.estimatedHours());
+                    replaceContents(entity.getOutcomes(), orEmpty(dto.outcomes()));
+                }));
+
+        mergeLevels(existing, orEmpty(curriculum.overallLearningPath()));
+        return true;
+    }
+
+    private void mergeLevels(CurriculumEntity existing, List<LearningLevelDTO> levelDtos) {
+        // Without an order column, persisted siblings are ordered by id
+        List<LearningLevelEntity> existingLevels = new ArrayList<>(existing.getOverallLearningPath());
+        existingLevels.sort(Comparator.comparing(LearningLevelEntity::getId, Comparator.nullsLast(Comparator.naturalOrder())));
+
+        // A topic is kept only at the same tree path (level and ancestors); anything that moved is
+        // deleted and re-inserted, because cascades and orphan removal follow its old parent
+        Set<String> desiredPaths = new HashSet<>();
+        for (int i = 0; i < levelDtos.size(); i++) {
+            collectPaths(orEmpty(levelDtos.get(i).topics()), "level-" + i, desiredPaths);
+        }
+        Map<String, TopicEntity> keptTopics = new HashMap<>();
+        boolean removed = false;
+        for (int i = 0; i < existingLevels.size(); i++) {
+            LearningLevelEntity level = existingLevels.get(i);
+            if (i >= levelDtos.size()) {
+                existing.getOverallLearningPath().remove(level);
+                removed = true;
+                continue;
+            }
+            List<TopicEntity> kept = new ArrayList<>();
+            for (TopicEntity topic : level.getTopics()) {
+                String path = pathOf(topic, "level-" + i);
+                if (desiredPaths.contains(path) && !keptTopics.containsKey(path)) {
+                    keptTopics.put(path, topic);
+                    kept.add(topic);
+                }
+            }
+            if (kept.size() != level.getTopics().size()) {
+                level.getTopics().retainAll(kept);
+                level.getTopics().forEach(topic -> topic.getSubtopics().retainAll(kept));
+                removed = true;
+            }
+        }
+        if (removed) {
+            // Business ids are unique, so deletes must reach the database before a moved topic is re-inserted
+            entityManager.flush();
+        }
+
+        List<LearningLevelEntity> levels = new ArrayList<>();
+        for (int i = 0; i < levelDtos.size(); i++) {
+            LearningLevelDTO levelDto = levelDtos.get(i);
+            LearningLevelEntity level;
+            if (i < existingLevels.size()) {
+                level = existingLevels.get(i);
+            } else {
+                level = new LearningLevelEntity();
+                level.setCurriculum(existing);
+            }
+            level.setLevel(levelDto.level());
+            level.setEstimatedHours(levelDto.estimatedHours());
+
+            // The level's topic collection maps every topic that references the level, subtopics included
+            List<TopicEntity> levelTopics = new ArrayList<>();
+            mergeTopics(orEmpty(levelDto.topics()), level, null, "level-" + i, keptTopics, levelTopics);
+            replaceContents(level.getTopics(), levelTopics);
+            levels.add(level);
+        }
+        replaceContents(existing.getOverallLearningPath(), levels);
+    }
+
+    private List<TopicEntity> mergeTopics(List<TopicDTO> topicDtos, LearningLevelEntity level, TopicEntity parent, String parentPath,
+                                          Map<String, TopicEntity> keptTopics, List<TopicEntity> levelTopics) {
+        List<TopicEntity> topics = new ArrayList<>();
+        for (TopicDTO dto : topicDtos) {
+            String path = parentPath + "/" + topicKey(dto.id(), dto.title());
+            TopicEntity topic = keptTopics.remove(path);
+            if (topic == null) {
+                topic = new TopicEntity();
+                topic.setId(dto.id());
+            }
+            topic.setTitle(dto.title());
+            topic.setDescription(dto.description());
+            topic.setOrder(dto.order());
+            topic.setEstimatedHours(dto.estimatedHours());
+            replaceContents(topic.getPrerequisites(), orEmpty(dto.prerequisites()));
+            replaceContents(topic.getOutcomes(), orEmpty(dto.outcomes()));
+            replaceContents(topic.getExampleExercises(), orEmpty(dto.exampleExercises()));
+            replaceContents(topic.getExplainability(), orEmpty(dto.explainability()));
+            topic.setLearningLevel(level);
+            topic.setParentTopic(parent);
+
+            TopicEntity owner = topic;
+            replaceContents(topic.getHelpfulReferences(), matchByKey(topic.getHelpfulReferences(),
+                    reference -> reference.getSourceId() + "|" + reference.getUrl(),
+                    orEmpty(dto.helpfulReferences()), reference -> reference.sourceId() + "|" + reference.url(),
+                    reference -> curriculumMapper.convertSourceReferenceToEntity(reference, owner),
+                    (entity, reference) -> {
+                        entity.setSnippet(reference.snippet());
+                        entity.setShortEvidence(reference.shortEvidence());
+                    }));
+            replaceContents(topic.getLearningResources(), matchByKey(topic.getLearningResources(),
+                    resource -> resource.getUrl() != null ? resource.getUrl() : resource.getTitle(),
+                    orEmpty(dto.learningResources()), resource -> resource.url() != null ? resource.url() : resource.title(),
+                    resource -> curriculumMapper.convertLearningResourceToEntity(resource, owner),
+                    (entity, resource) -> {
+                        entity.setTitle(resource.title());
+                        entity.setType(resource.type());
+                        entity.setAuthorityScore(resource.authorityScore());
+                        entity.setShortSummary(resource.shortSummary());
+                    }));
+
+            levelTopics.add(topic);
+            replaceContents(topic.getSubtopics(), mergeTopics(orEmpty(dto.subtopics()), level, topic, path, keptTopics, levelTopics));
+            topics.add(topic);
+        }
+        return topics;
+    }
+
+    private void collectPaths(List<TopicDTO> topics, String parentPath, Set<String> paths) {
+        for (TopicDTO topic : topics) {
+            String path = parentPath + "/" + topicKey(topic.id(), topic.title());
+            paths.add(path);
+            collectPaths(orEmpty(topic.subtopics()), path, paths);
+        }
+    }
+
+    private static String pathOf(TopicEntity topic, String levelPath) {
+        String key = topicKey(topic.getId(), topic.getTitle());
+        return topic.getParentTopic() == null ? levelPath + "/" + key : pathOf(topic.getParentTopic(), levelPath) + "/" + key;
+    }
+
+    private static String topicKey(String id, String title) {
+        return id != null && !id.isBlank() ? "id:" + id : "title:" + LearningResourceEnricher.titleKey(title);
+    }
+
+    /**
+     * Pairs each DTO with an unused existing entity of the same key (updating it) or a new entity,
+     * in DTO order. Existing entities left unpaired are dropped by {@link #replaceContents}.
+     */
+    private static <E, D> List<E> matchByKey(List<E> current, Function<E, String> entityKey, List<D> desired, Function<D, String> dtoKey,
+                                             Function<D, E> create, BiConsumer<E, D> update) {
+        Map<String, Deque<E>> unmatched = new LinkedHashMap<>();
+        current.forEach(entity -> unmatched.computeIfAbsent(entityKey.apply(entity), key -> new ArrayDeque<>()).add(entity));
+        List<E> result = new ArrayList<>();
+        for (D dto : desired) {
+            Deque<E> candidates = unmatched.get(dtoKey.apply(dto));
+            E entity = candidates != null && !candidates.isEmpty() ? candidates.poll() : create.apply(dto);
+            update.accept(entity, dto);
+            result.add(entity);
+        }
+        return result;
+    }
+
+    // Persistent bags compare by identity, so compare element-wise; only a real change rewrites the collection
+    private static <E> void replaceContents(List<E> collection, List<E> desired) {
+        if (!new ArrayList<>(collection).equals(desired)) {
+            collection.clear();
+            collection.addAll(desired);
+        }
+    }
+
+    private static <T> List<T> orEmpty(List<T> list) {
+        return list != null ? list : List.of();
+    }
+}
@@ -0,0 +1,33 @@
+package com.sotfinder.api.language.service;
+
+/**
+ * A curriculum serialized once to JSON (and compressed once), ready to be written to responses as-is.
+ *
+ * @param json     UTF-8 JSON bytes of the {@link com.sotfinder.api.language.dto.CurriculumDTO}; never modified after creation
+ * @param gzipJson {@code json} gzip-compressed; never modified after creation
+ * @param etag     strong ETag (quoted SHA-256 of {@code json}) of the uncompressed representation
+ */
+public record CurriculumPayload(byte[] json, byte[] gzipJson, String etag) {
+
+    // The gzip representation has different bytes, so it needs its own strong ETag
+    public String gzipEtag() {
+        return etag.substring(0, etag.length() - 1) + "-gzip\"";
+    }
+
+    // True if an If-None-Match header value lists either representation's ETag (or is "*")
+    public boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2); // If-None-Match uses weak comparison
+            }
+            if (tag.equals("*") || tag.equals(etag) || tag.equals(gzipEtag())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
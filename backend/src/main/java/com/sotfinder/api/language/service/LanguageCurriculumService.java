@@ -1,5 +1,6 @@
 package com.sotfinder.api.language.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sotfinder.api.exception.DataNotFoundException; // Added
@@ -9,58 +10,79 @@ import com.sotfinder.api.language.dto.LearningLevelDTO;
 import com.sotfinder.api.language.dto.LearningResourceDTO;
 import com.sotfinder.api.language.dto.PracticeProjectDTO;
 import com.sotfinder.api.language.dto.SourceReferenceDTO;
+import com.sotfinder.api.language.dto.StreamedTopicDTO;
 import com.sotfinder.api.language.dto.TopicDTO;
 import com.sotfinder.api.language.entity.CanonicalSourceEntity;
 import com.sotfinder.api.language.entity.CurriculumEntity;
+import com.sotfinder.api.language.entity.CurriculumSnapshotEntity;
 import com.sotfinder.api.language.entity.LearningLevelEntity;
 import com.sotfinder.api.language.entity.LearningResourceEntity;
 import com.sotfinder.api.language.entity.PracticeProjectEntity;
 import com.sotfinder.api.language.entity.SourceReferenceEntity;
 import com.sotfinder.api.language.entity.TopicEntity;
 import com.sotfinder.api.language.repository.CurriculumRepository;
+import com.sotfinder.api.language.repository.CurriculumSnapshotRepository;
+import com.sotfinder.api.language.repository.CurriculumVersion;
 import com.sotfinder.api.service.JsonDataService;
 import com.sotfinder.api.service.LLMService;
-import com.sotfinder.api.service.LearningResourceService;
 import com.sotfinder.api.service.OpenAILLMService;
-import com.sotfinder.api.service.OpenAILLearningResourceService;
 import com.sotfinder.api.language.service.CurriculumMapper; // Added
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
 
 @Service
 public class LanguageCurriculumService {
 
     private final JsonDataService jsonDataService;
     private final LLMService llmService;
-    private final LearningResourceService learningResourceService;
+    private final LearningResourceEnricher learningResourceEnricher;
     private final ObjectMapper objectMapper;
     private final CurriculumRepository curriculumRepository; // Injected repository
     private final CurriculumMapper curriculumMapper; // Injected mapper
 
-    // Changed to cache DTOs, not entities
-    private final ConcurrentHashMap<String, CurriculumDTO> curriculumCache = new ConcurrentHashMap<>();
+    // Caches DTOs together with their serialized form, so reads don't re-run Jackson
+    private final CurriculumCache curriculumCache;
+    private final CurriculumGraphLoader curriculumGraphLoader;
+    private final CurriculumSnapshotRepository curriculumSnapshotRepository;
 
     public LanguageCurriculumService(
             JsonDataService jsonDataService,
             OpenAILLMService llmService,
-            OpenAILLearningResourceService learningResourceService,
+            LearningResourceEnricher learningResourceEnricher,
             ObjectMapper objectMapper,
             CurriculumRepository curriculumRepository, // Injected
-            CurriculumMapper curriculumMapper // Injected
+            CurriculumMapper curriculumMapper, // Injected
+            CurriculumCache curriculumCache,
+            CurriculumGraphLoader curriculumGraphLoader,
+            CurriculumSnapshotRepository curriculumSnapshotRepository
     ) {
         this.jsonDataService = jsonDataService;
         this.llmService = llmService;
-        this.learningResourceService = learningResourceService;
+        this.learningResourceEnricher = learningResourceEnricher;
         this.objectMapper = objectMapper;
         this.curriculumRepository = curriculumRepository;
         this.curriculumMapper = curriculumMapper;
+        this.curriculumCache = curriculumCache;
+        this.curriculumGraphLoader = curriculumGraphLoader;
+        this.curriculumSnapshotRepository = curriculumSnapshotRepository;
     }
     public List<CanonicalSourceDTO> getCanonicalSources(String language) {
         CurriculumDTO curriculum = getCurriculum(language); // Changed to use getCurriculum
@@ -68,28 +90,160 @@ public class LanguageCurriculumService {
     }
 
     public CurriculumDTO getCurriculum(String language) {
+        return getCachedCurriculum(language).curriculum();
+    }
+
+    public CurriculumPayload getCurriculumPayload(String language) {
+        return getCachedCurriculum(language).payload();
+    }
+
+    private CurriculumCache.Entry getCachedCurriculum(String language) {
         String langKey = language.toLowerCase();
 
         // 1. Check in-memory cache first
-        CurriculumDTO cachedCurriculum = curriculumCache.get(langKey);
-        if (cachedCurriculum != null) {
-            return cachedCurriculum;
+        CurriculumCache.Entry cached = curriculumCache.get(langKey);
+        if (cached != null) {
+            return cached;
+        }
+
+        // 2. If not in cache, read the materialized snapshot (a single primary-key lookup)
+        Optional<CurriculumSnapshotEntity> snapshot = curriculumSnapshotRepository.findById(langKey);
+        if (snapshot.isPresent()) {
+            try {
+                CurriculumDTO dto = objectMapper.readValue(snapshot.get().getDocument(), CurriculumDTO.class);
+                return publish(langKey, dto, new CurriculumVersion(snapshot.get().getConfigTopicsHash(), snapshot.get().getModelVersion()));
+            } catch (JsonProcessingException e) {
+                System.err.println("Unreadable curriculum snapshot for " + langKey + ", loading from the normalized tables: " + e.getMessage());
+            }
         }
 
-        // 2. If not in cache, try to find in database
-        Optional<CurriculumEntity> existingCurriculumEntity = curriculumRepository.findByLanguage(langKey);
-        if (existingCurriculumEntity.isPresent()) {
-            CurriculumDTO dto = curriculumMapper.convertToDto(existingCurriculumEntity.get()); // Use mapper
-            curriculumCache.put(langKey, dto); // Populate cache from DB
-            return dto;
+        // 3. Curricula persisted before snapshots existed: assemble from the normalized tables
+        Optional<CurriculumGraphLoader.LoadedCurriculum> stored = curriculumGraphLoader.loadByLanguage(langKey);
+        if (stored.isPresent()) {
+            // Populate cache from DB
+            return publish(langKey, stored.get().curriculum(), stored.get().version());
         }
 
-        // 3. If not in DB or cache, data is not pre-loaded. Throw exception.
+        // 4. If not in DB or cache, data is not pre-loaded. Throw exception.
         throw new DataNotFoundException("Curriculum data for language " + language + " not found. Please ensure it has been pre-loaded by the background job.");
     }
 
-    @Transactional // Ensure all operations are part of a single transaction
+    /**
+     * Serves {@code curriculum} for {@code language} from now on. Called once a curriculum has been
+     * persisted, so the cached copy carries the version it was stored with.
+     */
+    public CurriculumCache.Entry publish(String language, CurriculumDTO curriculum, CurriculumVersion version) {
+        CurriculumCache.Entry entry = prepare(curriculum, version);
+        publish(language, entry);
+        return entry;
+    }
+
+    public void publish(String language, CurriculumCache.Entry entry) {
+        curriculumCache.put(language.toLowerCase(), entry);
+    }
+
+    // Serializes (and compresses) a curriculum into a cache entry without publishing it
+    public CurriculumCache.Entry prepare(CurriculumDTO curriculum, CurriculumVersion version) {
+        return new CurriculumCache.Entry(curriculum, serialize(curriculum), version);
+    }
+
+    /**
+     * Writes the denormalized snapshot of a persisted curriculum. Call it in the transaction that
+     * saved the {@link CurriculumEntity}, so both always agree.
+     */
+    public void storeSnapshot(String language, CurriculumCache.Entry entry) {
+        CurriculumSnapshotEntity snapshot = new CurriculumSnapshotEntity();
+        snapshot.setLanguage(language.toLowerCase());
+        snapshot.setDocument(new String(entry.payload().json(), StandardCharsets.UTF_8));
+        snapshot.setConfigTopicsHash(entry.version().configTopicsHash());
+        snapshot.setModelVersion(entry.version().modelVersion());
+        snapshot.setUpdatedAt(LocalDateTime.now());
+        curriculumSnapshotRepository.save(snapshot);
+    }
+
+    // Writes the snapshot for a curriculum persisted before snapshots existed (or whose snapshot is outdated)
+    @Transactional
+    public void backfillSnapshot(String language, String configTopicsHash) {
+        String langKey = language.toLowerCase();
+        boolean current = curriculumSnapshotRepository.findById(langKey)
+                .map(snapshot -> configTopicsHash.equals(snapshot.getConfigTopicsHash()))
+                .orElse(false);
+        if (!current) {
+            curriculumGraphLoader.loadByLanguage(langKey).ifPresent(stored -> {
+                storeSnapshot(langKey, prepare(stored.curriculum(), stored.version()));
+                System.out.println("Backfilled curriculum snapshot for language: " + langKey);
+            });
+        }
+    }
+
+    private CurriculumPayload serialize(CurriculumDTO curriculum) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(curriculum);
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(json);
+            return new CurriculumPayload(json, gzip(json), "\"" + HexFormat.of().formatHex(hash) + "\"");
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new RuntimeException("Failed to serialize curriculum for " + curriculum.language(), e);
+        }
+    }
+
+    // Compressed once per published curriculum, so spend the CPU on the best ratio
+    private static byte[] gzip(byte[] json) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzip.write(json);
+        }
+        return compressed.toByteArray();
+    }
+
+    // Not transactional: the LLM calls take minutes and must not hold a database connection
     public CurriculumDTO generateCurriculumWithLLM(String language, JsonNode fullConfigData) {
+        return generateCurriculumWithLLM(language, fullConfigData, Map.of());
+    }
+
+    // reusableResourcesByTitle: resources of unchanged topics from the previous generation, see LearningResourceEnricher
+    public CurriculumDTO generateCurriculumWithLLM(String language, JsonNode fullConfigData,
+                                                   Map<String, List<LearningResourceDTO>> reusableResourcesByTitle) {
+        try {
+            return generateCurriculumWithLLMAsync(language, fullConfigData, reusableResourcesByTitle).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException("Failed to generate curriculum for " + language, e.getCause());
+        }
+    }
+
+    public CompletableFuture<CurriculumDTO> generateCurriculumWithLLMAsync(String language, JsonNode fullConfigData) {
+        return generateCurriculumWithLLMAsync(language, fullConfigData, Map.of());
+    }
+
+    public CompletableFuture<CurriculumDTO> generateCurriculumWithLLMAsync(String language, JsonNode fullConfigData,
+                                                                           Map<String, List<LearningResourceDTO>> reusableResourcesByTitle) {
+        return generateCurriculumStructureAsync(language, fullConfigData)
+                .thenCompose(initialCurriculum -> enrichCurriculumAsync(language, fullConfigData, initialCurriculum, reusableResourcesByTitle));
+    }
+
+    // First step of a generation: levels and topics, without learning resources
+    public CompletableFuture<CurriculumDTO> generateCurriculumStructureAsync(String language, JsonNode fullConfigData) {
+        return llmService.generateCurriculumAsync(language.toLowerCase(), fullConfigData.get("topics").toString());
+    }
+
+    // On-demand preview of the first step: topics are handed to onTopic while the LLM writes them; nothing is stored
+    public CompletableFuture<CurriculumDTO> streamCurriculumStructureAsync(String language, Consumer<StreamedTopicDTO> onTopic) {
+        JsonNode fullConfigData = jsonDataService.getCurriculumData(language);
+        if (fullConfigData == null || !fullConfigData.has("topics")) {
+            throw new DataNotFoundException("Curriculum config for language " + language + " not found.");
+        }
+        return llmService.streamCurriculumAsync(language.toLowerCase(), fullConfigData.get("topics").toString(), onTopic);
+    }
+
+    // Second step of a generation: learning resources for every topic of the generated structure
+    public CompletableFuture<CurriculumDTO> enrichCurriculumAsync(String language, JsonNode fullConfigData, CurriculumDTO initialCurriculum,
+                                                                  Map<String, List<LearningResourceDTO>> reusableResourcesByTitle) {
         String langKey = language.toLowerCase();
 
         JsonNode trustProfilesNode = fullConfigData.has("trustProfiles") ? fullConfigData.get("trustProfiles").get("trustProfiles") : null;
@@ -100,57 +254,35 @@ public class LanguageCurriculumService {
             effectiveTrustProfilesNode = trustProfilesNode;
         }
 
-        CurriculumDTO initialCurriculum = llmService.generateCurriculum(langKey, fullConfigData.get("topics").toString());
-
-        // Recursively generate learning resources for each topic and subtopic
-        List<LearningLevelDTO> updatedLearningPath = initialCurriculum.overallLearningPath().stream()
-                .map(level -> {
-                    List<TopicDTO> updatedTopics = level.topics().stream()
-                            .map(topic -> processTopicForLearningResources(langKey, topic, effectiveTrustProfilesNode))
-                            .collect(Collectors.toList());
-                    return new LearningLevelDTO(level.level(), level.estimatedHours(), updatedTopics);
-                })
-                .collect(Collectors.toList());
-
-        // Final Curriculum DTO after LLM generation and resource enrichment
-        CurriculumDTO finalCurriculumDTO = new CurriculumDTO(
-                initialCurriculum.language(),
-                initialCurriculum.generatedAt(),
-                initialCurriculum.canonicalSources(),
-                updatedLearningPath,
-                initialCurriculum.coreSources(),
-                initialCurriculum.supplementalSources(),
-                initialCurriculum.practiceProjects(),
-                initialCurriculum.explanation(),
-                initialCurriculum.modelVersion()
-        );
-
-        // Populate in-memory cache
-        curriculumCache.put(langKey, finalCurriculumDTO);
-        return finalCurriculumDTO;
-    }
-
-    private TopicDTO processTopicForLearningResources(String language, TopicDTO topic, JsonNode trustProfilesNode) {
-        List<LearningResourceDTO> generatedResources = learningResourceService.generateLearningResources(language, topic.title(), trustProfilesNode);
-
-        List<TopicDTO> updatedSubtopics = topic.subtopics().stream()
-                .map(subtopic -> processTopicForLearningResources(language, subtopic, trustProfilesNode))
-                .collect(Collectors.toList());
-
-        return new TopicDTO(
-                topic.id(),
-                topic.title(),
-                topic.description(),
-                topic.order(),
-                topic.estimatedHours(),
-                topic.prerequisites(),
-                topic.outcomes(),
-                topic.exampleExercises(),
-                topic.helpfulReferences(),
-                topic.explainability(),
-                updatedSubtopics,
-                generatedResources
-        );
+        // Generate learning resources for every topic and subtopic concurrently, keeping the tree order
+        CompletableFuture<List<LearningLevelDTO>> enrichment = learningResourceEnricher
+                .enrichAsync(langKey, initialCurriculum.overallLearningPath(), effectiveTrustProfilesNode, reusableResourcesByTitle);
+        CompletableFuture<CurriculumDTO> result = enrichment
+                .thenApply(updatedLearningPath -> {
+                    // Final Curriculum DTO after LLM generation and resource enrichment
+                    CurriculumDTO finalCurriculumDTO = new CurriculumDTO(
+                            initialCurriculum.language(),
+                            initialCurriculum.generatedAt(),
+                            initialCurriculum.canonicalSources(),
+                            updatedLearningPath,
+                            initialCurriculum.coreSources(),
+                            initialCurriculum.supplementalSources(),
+                            initialCurriculum.practiceProjects(),
+                            initialCurriculum.explanation(),
+                            initialCurriculum.modelVersion()
+                    );
+
+                    // Not cached yet: the loader publishes it once it has been persisted
+                    return finalCurriculumDTO;
+                });
+
+        // Cancelling (or timing out) the result doesn't reach the enrichment by itself
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                enrichment.cancel(true);
+            }
+        });
+        return result;
     }
 
 }
@@ -0,0 +1,238 @@
+package com.sotfinder.api.language.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sotfinder.api.language.dto.LearningLevelDTO;
+import com.sotfinder.api.language.dto.LearningResourceDTO;
+import com.sotfinder.api.language.dto.TopicDTO;
+import com.sotfinder.api.service.LearningResourceService;
+import com.sotfinder.api.service.OpenAILLearningResourceService;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Fans learning-resource generation out over the whole level/topic/subtopic tree of a curriculum.
+ * Topics are grouped into batch requests sized by the {@link LearningResourceService}, in-flight
+ * LLM calls are capped per language and globally, and the enriched tree keeps the order of the
+ * input tree.
+ */
+@Service
+public class LearningResourceEnricher {
+
+    private final LearningResourceService learningResourceService;
+    private final ExecutorService executor;
+    private final Semaphore globalPermits;
+    private final int maxConcurrencyPerLanguage;
+    private final ConcurrentHashMap<String, Semaphore> languagePermits = new ConcurrentHashMap<>();
+
+    public LearningResourceEnricher(
+            OpenAILLearningResourceService learningResourceService,
+            @Value("${curriculum.enrichment.executor:virtual}") String executorType, // "virtual" or "fixed"
+            @Value("${curriculum.enrichment.pool-size:16}") int poolSize, // Only used by the "fixed" executor
+            @Value("${curriculum.enrichment.max-concurrency:16}") int maxConcurrency,
+            @Value("${curriculum.enrichment.max-concurrency-per-language:4}") int maxConcurrencyPerLanguage) {
+        this.learningResourceService = learningResourceService;
+        this.executor = "fixed".equalsIgnoreCase(executorType)
+                ? Executors.newFixedThreadPool(poolSize)
+                : Executors.newVirtualThreadPerTaskExecutor();
+        this.globalPermits = new Semaphore(maxConcurrency, true);
+        this.maxConcurrencyPerLanguage = maxConcurrencyPerLanguage;
+    }
+
+    /**
+     * Completes with the enriched levels once every topic has its resources. The first failed call
+     * cancels the calls still in flight for this curriculum, and so does cancelling the returned future.
+     */
+    public CompletableFuture<List<LearningLevelDTO>> enrichAsync(String language, List<LearningLevelDTO> levels, JsonNode trustProfilesNode) {
+        return enrichAsync(language, levels, trustProfilesNode, Map.of());
+    }
+
+    /**
+     * Like {@link #enrichAsync(String, List, JsonNode)}, but topics whose {@link #titleKey title key}
+     * appears in {@code reusableResourcesByTitle} keep those resources instead of being sent to the LLM.
+     */
+    public CompletableFuture<List<LearningLevelDTO>> enrichAsync(String language, List<LearningLevelDTO> levels, JsonNode trustProfilesNode,
+                                                                 Map<String, List<LearningResourceDTO>> reusableResourcesByTitle) {
+        EnrichmentRun run = new EnrichmentRun(language, trustProfilesNode);
+
+        // Key every topic and subtopic in tree order; the keys double as the ids in batch prompts
+        List<String> keys = new ArrayList<>();
+        Map<String, String> titlesByKey = new LinkedHashMap<>();
+        Map<String, List<LearningResourceDTO>> reusedByKey = new HashMap<>();
+        levels.forEach(level -> level.topics().forEach(topic ->
+                collectTopics(topic, keys, titlesByKey, reusableResourcesByTitle, reusedByKey)));
+        if (!reusedByKey.isEmpty()) {
+            System.out.println("LearningResourceEnricher: Reusing resources for " + reusedByKey.size() + " of "
+                    + keys.size() + " topics of " + language + ".");
+        }
+
+        // Submit every batch up front, then wait for the whole tree
+        List<Map.Entry<String, String>> topics = List.copyOf(titlesByKey.entrySet());
+        int batchSize = learningResourceService.getBatchSize(language);
+        List<CompletableFuture<Map<String, List<LearningResourceDTO>>>> batches = new ArrayList<>();
+        for (int from = 0; from < topics.size(); from += batchSize) {
+            Map<String, String> batch = new LinkedHashMap<>();
+            topics.subList(from, Math.min(from + batchSize, topics.size()))
+                    .forEach(topic -> batch.put(topic.getKey(), topic.getValue()));
+            batches.add(generateBounded(run, batch));
+        }
+
+        CompletableFuture<List<LearningLevelDTO>> result = CompletableFuture.allOf(batches.toArray(CompletableFuture[]::new))
+                .handle((v, error) -> {
+                    if (error == null) {
+                        Map<String, List<LearningResourceDTO>> resourcesByKey = new HashMap<>(reusedByKey);
+                        batches.forEach(batch -> resourcesByKey.putAll(batch.join()));
+                        Iterator<String> keyIterator = keys.iterator();
+                        return levels.stream()
+                                .map(level -> new LearningLevelDTO(level.level(), level.estimatedHours(), level.topics().stream()
+                                        .map(topic -> withResources(topic, keyIterator, resourcesByKey))
+                                        .toList()))
+                                .toList();
+                    }
+                    // Report the call that actually failed rather than one that was skipped because of it
+                    Throwable failure = run.failure.get() != null ? run.failure.get() : unwrap(error);
+                    throw failure instanceof RuntimeException runtimeFailure
+                            ? runtimeFailure
+                            : new RuntimeException("Failed to generate learning resources for " + language, failure);
+                });
+
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                run.abort(new CancellationException("Enrichment for " + language + " was cancelled"));
+            }
+        });
+        return result;
+    }
+
+    private void collectTopics(TopicDTO topic, List<String> keys, Map<String, String> titlesByKey,
+                               Map<String, List<LearningResourceDTO>> reusableResourcesByTitle,
+                               Map<String, List<LearningResourceDTO>> reusedByKey) {
+        // LLM-generated ids are usually unique but not guaranteed to be, so fall back to a positional key
+        String key = topic.id() != null && !topic.id().isBlank() ? topic.id() : "topic-" + keys.size();
+        while (titlesByKey.containsKey(key) || reusedByKey.containsKey(key)) {
+            key = key + "-" + keys.size();
+        }
+        keys.add(key);
+        List<LearningResourceDTO> reusable = reusableResourcesByTitle.get(titleKey(topic.title()));
+        if (reusable != null) {
+            reusedByKey.put(key, reusable);
+        } else {
+            titlesByKey.put(key, topic.title());
+        }
+        subtopicsOf(topic).forEach(subtopic -> collectTopics(subtopic, keys, titlesByKey, reusableResourcesByTitle, reusedByKey));
+    }
+
+    // Normalized form of a topic title used to match topics across regenerations
+    public static String titleKey(String title) {
+        return title == null ? "" : title.trim().replaceAll("\\s+", " ").toLowerCase();
+    }
+
+    private TopicDTO withResources(TopicDTO topic, Iterator<String> keys, Map<String, List<LearningResourceDTO>> resourcesByKey) {
+        // Walks the tree in the same order as collectTopics, so the next key always belongs to this topic
+        String key = keys.next();
+        List<TopicDTO> subtopics = subtopicsOf(topic).stream()
+                .map(subtopic -> withResources(subtopic, keys, resourcesByKey))
+                .toList();
+        return new TopicDTO(
+                topic.id(),
+                topic.title(),
+                topic.description(),
+                topic.order(),
+                topic.estimatedHours(),
+                topic.prerequisites(),
+                topic.outcomes(),
+                topic.exampleExercises(),
+                topic.helpfulReferences(),
+                topic.explainability(),
+                subtopics,
+                resourcesByKey.getOrDefault(key, List.of())
+        );
+    }
+
+    private static List<TopicDTO> subtopicsOf(TopicDTO topic) {
+        return topic.subtopics() != null ? topic.subtopics() : List.of();
+    }
+
+    private CompletableFuture<Map<String, List<LearningResourceDTO>>> generateBounded(EnrichmentRun run, Map<String, String> topicTitlesByKey) {
+        Semaphore languageLimit = languagePermits.computeIfAbsent(run.language,
+                key -> new Semaphore(maxConcurrencyPerLanguage, true));
+
+        // Only waiting for a permit occupies a thread; the call itself is asynchronous
+        return CompletableFuture.runAsync(() -> {
+                    // Always take the language permit before the global one so waiters never deadlock
+                    languageLimit.acquireUninterruptibly();
+                    globalPermits.acquireUninterruptibly();
+                }, executor)
+                .thenCompose(v -> {
+                    CompletableFuture<Map<String, List<LearningResourceDTO>>> call;
+                    if (run.failure.get() != null) {
+                        call = CompletableFuture.failedFuture(new IllegalStateException("Enrichment for " + run.language + " was aborted"));
+                    } else {
+                        try {
+                            call = learningResourceService.generateLearningResourcesBatchAsync(run.language, topicTitlesByKey, run.trustProfilesNode);
+                            run.inFlight.add(call);
+                            // An abort between the check above and the add did not see this call, so cancel it here
+                            if (run.failure.get() != null) {
+                                call.cancel(true);
+                            }
+                        } catch (RuntimeException e) {
+                            call = CompletableFuture.failedFuture(e);
+                        }
+                    }
+                    CompletableFuture<Map<String, List<LearningResourceDTO>>> started = call;
+                    return started.whenComplete((resources, error) -> {
+                        run.inFlight.remove(started);
+                        globalPermits.release();
+                        languageLimit.release();
+                        if (error != null) {
+                            run.abort(unwrap(error)); // Don't start calls whose results would be thrown away
+                        }
+                    });
+                });
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static final class EnrichmentRun {
+        private final String language;
+        private final JsonNode trustProfilesNode;
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final Set<CompletableFuture<?>> inFlight = ConcurrentHashMap.newKeySet();
+
+        private EnrichmentRun(String language, JsonNode trustProfilesNode) {
+            this.language = language;
+            this.trustProfilesNode = trustProfilesNode;
+        }
+
+        private void abort(Throwable cause) {
+            if (failure.compareAndSet(null, cause)) {
+                inFlight.forEach(call -> call.cancel(true));
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.sotfinder.api.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sotfinder.api.exception.LlmCallException;
+
+import java.io.IOException;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+
+/**
+ * Reads a streamed chat completion line by line. Each server-sent {@code data:} line carries a
+ * chunk whose {@code choices[0].delta.content} is handed to {@code onDelta} as soon as it arrives
+ * and appended to the full content; the last chunk carries the {@code usage} of the completion.
+ * Error responses are not event streams, so without an {@code onDelta} the lines are only
+ * collected as the raw body.
+ */
+final class ChatCompletionStreamSubscriber implements Flow.Subscriber<String> {
+
+    private final ObjectMapper objectMapper;
+    private final Consumer<String> onDelta;
+    private final StringBuilder content = new StringBuilder();
+    private final StringBuilder raw = new StringBuilder();
+    private OpenAIResponse.Usage usage;
+    private RuntimeException failure;
+
+    ChatCompletionStreamSubscriber(ObjectMapper objectMapper, Consumer<String> onDelta) {
+        this.objectMapper = objectMapper;
+        this.onDelta = onDelta;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(String line) {
+        if (failure != null) {
+            return;
+        }
+        if (onDelta == null) {
+            raw.append(line).append('\n');
+            return;
+        }
+        // Blank lines separate events; ": ..." lines are keep-alive comments
+        if (!line.startsWith("data:")) {
+            return;
+        }
+        String data = line.substring("data:".length()).trim();
+        if (data.equals("[DONE]")) {
+            return;
+        }
+        try {
+            JsonNode chunk = objectMapper.readTree(data);
+            if (chunk.hasNonNull("usage")) {
+                usage = objectMapper.treeToValue(chunk.get("usage"), OpenAIResponse.Usage.class);
+            }
+            JsonNode delta = chunk.path("choices").path(0).path("delta").path("content");
+            if (delta.isTextual() && !delta.asText().isEmpty()) {
+                content.append(delta.asText());
+                onDelta.accept(delta.asText());
+            }
+        } catch (IOException e) {
+            failure = new LlmCallException(LlmCallException.Kind.MALFORMED, "Unreadable chunk in LLM stream", e);
+        } catch (RuntimeException e) {
+            failure = e; // Thrown by onDelta; the rest of the stream is drained but ignored
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        // The HTTP client fails the response future itself
+    }
+
+    @Override
+    public void onComplete() {
+    }
+
+    String content() {
+        if (failure != null) {
+            throw failure;
+        }
+        return content.toString();
+    }
+
+    // Null unless the stream got as far as its usage chunk
+    OpenAIResponse.Usage usage() {
+        return usage;
+    }
+
+    String rawBody() {
+        return raw.toString();
+    }
+}
@@ -0,0 +1,41 @@
+package com.sotfinder.api.service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Merkle-style hashes of a language's {@code topics} config: every topic node is hashed from its
+ * own fields plus the hashes of its subtopics, so a change anywhere only alters the hashes on the
+ * path from that node to the root. The own-content hashes leave the subtopics out, so they only
+ * change for the nodes that were actually edited.
+ *
+ * @param rootHash       hash of the whole {@code topics} node
+ * @param topicHashes    hash per topic node, keyed by its path (e.g. {@code /generics/wildcards})
+ * @param topicOwnHashes hash of each topic node's own fields, without its subtopics, keyed by path
+ * @param topicTitles    title (or name) per topic node path, where the config has one
+ */
+public record ConfigTopicHashTree(
+        String rootHash,
+        Map<String, String> topicHashes,
+        Map<String, String> topicOwnHashes,
+        Map<String, String> topicTitles
+) {
+    // Paths whose own fields differ from, or are missing in, previousTopicOwnHashes
+    public Set<String> contentChangedSince(Map<String, String> previousTopicOwnHashes) {
+        Set<String> changed = new TreeSet<>();
+        topicOwnHashes.forEach((path, hash) -> {
+            if (!hash.equals(previousTopicOwnHashes.get(path))) {
+                changed.add(path);
+            }
+        });
+        return changed;
+    }
+
+    // Paths that existed in previousTopicHashes but are gone now
+    public Set<String> removedSince(Map<String, String> previousTopicHashes) {
+        Set<String> removed = new TreeSet<>(previousTopicHashes.keySet());
+        removed.removeAll(topicHashes.keySet());
+        return removed;
+    }
+}
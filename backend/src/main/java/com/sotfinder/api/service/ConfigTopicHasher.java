@@ -0,0 +1,174 @@
+package com.sotfinder.api.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builds the {@link ConfigTopicHashTree} for a {@code topics} config node. Object fields are hashed
+ * in sorted order so that reformatting or reordering keys in the config does not count as a change;
+ * the order of topics within a list does count. Every topic also gets an own-content hash over just
+ * its own fields, which tells a change to the topic itself apart from one further down.
+ */
+@Service
+public class ConfigTopicHasher {
+
+    // Fields holding nested topic lists; everything else is part of the topic's own content
+    private static final Set<String> CHILD_TOPIC_FIELDS = Set.of("topics", "subtopics", "children");
+    private static final List<String> TOPIC_KEY_FIELDS = List.of("id", "slug", "name", "title");
+
+    private static final byte OBJECT = 1, ARRAY = 2, TEXT = 3, NUMBER = 4, BOOLEAN = 5, NULL = 6, CHILD = 7;
+
+    public ConfigTopicHashTree hash(JsonNode topicsNode) {
+        Hashes hashes = new Hashes(new LinkedHashMap<>(), new LinkedHashMap<>(), new LinkedHashMap<>());
+        String rootHash = topicsNode.isArray()
+                ? hashTopicList(topicsNode, "", hashes)
+                : hashTopic(topicsNode, "", hashes);
+        return new ConfigTopicHashTree(rootHash, hashes.topicHashes(), hashes.topicOwnHashes(), hashes.topicTitles());
+    }
+
+    // Canonical hash of any config value, e.g. the trust profiles
+    public String hashValue(JsonNode value) {
+        MessageDigest digest = newDigest();
+        updateValue(digest, value);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private String hashTopicList(JsonNode topics, String parentPath, Hashes hashes) {
+        MessageDigest digest = newDigest();
+        digest.update(ARRAY);
+        Set<String> usedKeys = new HashSet<>();
+        for (int i = 0; i < topics.size(); i++) {
+            JsonNode topic = topics.get(i);
+            String key = topicKey(topic, i);
+            if (!usedKeys.add(key)) {
+                key = key + "#" + i; // Keep duplicate names apart
+            }
+            String childHash = hashTopic(topic, parentPath + "/" + key, hashes);
+            digest.update(CHILD);
+            digest.update(childHash.getBytes(StandardCharsets.US_ASCII));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private String hashTopic(JsonNode topic, String path, Hashes hashes) {
+        MessageDigest digest = newDigest();
+        // The same bytes minus the subtopic lists
+        MessageDigest ownDigest = newDigest();
+        if (topic.isObject()) {
+            digest.update(OBJECT);
+            ownDigest.update(OBJECT);
+            List<String> fieldNames = new ArrayList<>();
+            topic.fieldNames().forEachRemaining(fieldNames::add);
+            fieldNames.sort(null);
+            for (String fieldName : fieldNames) {
+                JsonNode value = topic.get(fieldName);
+                updateText(digest, fieldName);
+                if (CHILD_TOPIC_FIELDS.contains(fieldName) && value.isArray()) {
+                    digest.update(CHILD);
+                    digest.update(hashTopicList(value, path, hashes).getBytes(StandardCharsets.US_ASCII));
+                } else {
+                    updateValue(digest, value);
+                    updateText(ownDigest, fieldName);
+                    updateValue(ownDigest, value);
+                }
+            }
+            JsonNode title = topic.has("title") ? topic.get("title") : topic.get("name");
+            if (title != null && title.isTextual() && !path.isEmpty()) {
+                hashes.topicTitles().put(path, title.asText());
+            }
+        } else {
+            updateValue(digest, topic);
+            updateValue(ownDigest, topic);
+            if (topic.isTextual() && !path.isEmpty()) {
+                hashes.topicTitles().put(path, topic.asText()); // Plain list of topic names
+            }
+        }
+        String hash = HexFormat.of().formatHex(digest.digest());
+        if (!path.isEmpty()) {
+            hashes.topicHashes().put(path, hash);
+            hashes.topicOwnHashes().put(path, HexFormat.of().formatHex(ownDigest.digest()));
+        }
+        return hash;
+    }
+
+    // Canonical, allocation-light encoding of an arbitrary JSON value straight into the digest
+    private void updateValue(MessageDigest digest, JsonNode value) {
+        if (value.isObject()) {
+            digest.update(OBJECT);
+            List<String> fieldNames = new ArrayList<>();
+            value.fieldNames().forEachRemaining(fieldNames::add);
+            fieldNames.sort(null);
+            updateInt(digest, fieldNames.size());
+            for (String fieldName : fieldNames) {
+                updateText(digest, fieldName);
+                updateValue(digest, value.get(fieldName));
+            }
+        } else if (value.isArray()) {
+            digest.update(ARRAY);
+            updateInt(digest, value.size());
+            Iterator<JsonNode> elements = value.elements();
+            while (elements.hasNext()) {
+                updateValue(digest, elements.next());
+            }
+        } else if (value.isNumber()) {
+            digest.update(NUMBER);
+            updateText(digest, value.numberValue().toString());
+        } else if (value.isBoolean()) {
+            digest.update(BOOLEAN);
+            digest.update((byte) (value.booleanValue() ? 1 : 0));
+        } else if (value.isNull() || value.isMissingNode()) {
+            digest.update(NULL);
+        } else {
+            digest.update(TEXT);
+            updateText(digest, value.asText());
+        }
+    }
+
+    private static void updateText(MessageDigest digest, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        updateInt(digest, bytes.length); // Length prefix so adjacent strings can't be confused
+        digest.update(bytes);
+    }
+
+    private static void updateInt(MessageDigest digest, int value) {
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(value).array());
+    }
+
+    private static String topicKey(JsonNode topic, int index) {
+        if (topic.isTextual() && !topic.asText().isBlank()) {
+            return topic.asText().trim().toLowerCase().replace('/', '-'); // Plain list of topic names
+        }
+        for (String field : TOPIC_KEY_FIELDS) {
+            JsonNode key = topic.get(field);
+            if (key != null && key.isValueNode() && !key.asText().isBlank()) {
+                return key.asText().trim().toLowerCase().replace('/', '-');
+            }
+        }
+        return String.valueOf(index);
+    }
+
+    private record Hashes(Map<String, String> topicHashes, Map<String, String> topicOwnHashes, Map<String, String> topicTitles) {
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 algorithm not available", e);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.sotfinder.api.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Immutable view of the curriculum config at one version. {@link JsonDataService} builds a new
+ * snapshot per refresh and publishes it with a single reference swap, so readers always see one
+ * consistent set of languages.
+ *
+ * @param version   increases by one with every refresh that changed anything
+ * @param languages config node per cleaned language identifier, in config order
+ * @param changedAt version at which each current language was added or last changed
+ * @param removedAt version at which each no longer configured language was removed
+ */
+public record CurriculumConfigSnapshot(
+        long version,
+        Map<String, JsonNode> languages,
+        Map<String, Long> changedAt,
+        Map<String, Long> removedAt
+) {
+    public static final CurriculumConfigSnapshot EMPTY = new CurriculumConfigSnapshot(0, Map.of(), Map.of(), Map.of());
+
+    public record Changes(long fromVersion, long toVersion, Set<String> changed, Set<String> removed) {
+        public boolean isEmpty() {
+            return changed.isEmpty() && removed.isEmpty();
+        }
+    }
+
+    /**
+     * Derives the next snapshot from freshly fetched {@code fetchedLanguages}, or returns this
+     * snapshot unchanged if the fetch holds exactly the same config.
+     */
+    public CurriculumConfigSnapshot next(Map<String, JsonNode> fetchedLanguages) {
+        long nextVersion = version + 1;
+        Map<String, Long> nextChangedAt = new HashMap<>();
+        Map<String, Long> nextRemovedAt = new HashMap<>(removedAt);
+        boolean modified = false;
+
+        for (Map.Entry<String, JsonNode> language : fetchedLanguages.entrySet()) {
+            JsonNode previous = languages.get(language.getKey());
+            if (previous != null && previous.equals(language.getValue())) {
+                nextChangedAt.put(language.getKey(), changedAt.get(language.getKey()));
+            } else {
+                nextChangedAt.put(language.getKey(), nextVersion);
+                nextRemovedAt.remove(language.getKey());
+                modified = true;
+            }
+        }
+        for (String language : languages.keySet()) {
+            if (!fetchedLanguages.containsKey(language)) {
+                nextRemovedAt.put(language, nextVersion);
+                modified = true;
+            }
+        }
+        if (!modified) {
+            return this;
+        }
+        return new CurriculumConfigSnapshot(
+                nextVersion,
+                Collections.unmodifiableMap(new LinkedHashMap<>(fetchedLanguages)),
+                Map.copyOf(nextChangedAt),
+                Map.copyOf(nextRemovedAt));
+    }
+
+    // Languages added, changed or removed after sinceVersion, up to this snapshot's version
+    public Changes changesSince(long sinceVersion) {
+        Set<String> changed = new TreeSet<>();
+        changedAt.forEach((language, at) -> {
+            if (at > sinceVersion) {
+                changed.add(language);
+            }
+        });
+        Set<String> removed = new TreeSet<>();
+        removedAt.forEach((language, at) -> {
+            if (at > sinceVersion) {
+                removed.add(language);
+            }
+        });
+        return new Changes(sinceVersion, version, Collections.unmodifiableSet(changed), Collections.unmodifiableSet(removed));
+    }
+}
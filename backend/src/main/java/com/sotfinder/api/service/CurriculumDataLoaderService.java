@@ -1,107 +1,311 @@
 package com.sotfinder.api.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sotfinder.api.language.dto.CurriculumDTO;
-import com.sotfinder.api.language.entity.CurriculumEntity;
-import com.sotfinder.api.language.repository.CurriculumRepository;
-import com.sotfinder.api.language.service.CurriculumMapper;
+import com.sotfinder.api.language.dto.LearningResourceDTO;
+import com.sotfinder.api.language.dto.TopicDTO;
+import com.sotfinder.api.language.repository.CurriculumVersion;
+import com.sotfinder.api.language.service.CurriculumCache;
+import com.sotfinder.api.language.service.CurriculumGraphLoader;
+import com.sotfinder.api.language.service.CurriculumMerger;
 import com.sotfinder.api.language.service.LanguageCurriculumService;
+import com.sotfinder.api.language.service.LearningResourceEnricher;
+
+import io.micrometer.core.instrument.MeterRegistry;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 
+import org.springframework.core.env.Environment;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
 
 @Service
 public class CurriculumDataLoaderService {
 
     private final JsonDataService jsonDataService;
     private final LanguageCurriculumService languageCurriculumService;
-    private final CurriculumRepository curriculumRepository;
-    private final CurriculumMapper curriculumMapper; // Injected mapper
     private final ObjectMapper objectMapper; // Injected ObjectMapper
+    private final ConfigTopicHasher configTopicHasher;
+    private final CurriculumGraphLoader curriculumGraphLoader;
+    private final CurriculumPersistenceService curriculumPersistenceService;
+    private final CurriculumMerger curriculumMerger;
+    private final LlmUsageTracker usageTracker;
+    private volatile long lastLoadedConfigVersion = 0;
+
+    // Pipeline stages, each with its own workers and bounded queue (curriculum.pipeline.<stage>.*)
+    private final PipelineStage<LanguageRun, LanguageRun> diffStage;
+    private final PipelineStage<LanguageRun, LanguageRun> curriculumStage;
+    private final PipelineStage<LanguageRun, LanguageRun> enrichmentStage;
+    private final PipelineStage<LanguageRun, LanguageRun> mappingStage;
+    private final PipelineStage<LanguageRun, LanguageRun> persistStage;
+
+    // End-to-end budgets: the whole load, and each language from the start of its generation
+    private final Duration loadDeadline;
+    private final Duration languageDeadline;
 
     public CurriculumDataLoaderService(
             JsonDataService jsonDataService,
             LanguageCurriculumService languageCurriculumService,
-            CurriculumRepository curriculumRepository,
-            CurriculumMapper curriculumMapper,
-            ObjectMapper objectMapper) { // Inject ObjectMapper
+            ObjectMapper objectMapper, // Inject ObjectMapper
+            ConfigTopicHasher configTopicHasher,
+            CurriculumGraphLoader curriculumGraphLoader,
+            CurriculumPersistenceService curriculumPersistenceService,
+            CurriculumMerger curriculumMerger,
+            LlmUsageTracker usageTracker,
+            MeterRegistry meterRegistry,
+            Environment environment) {
         this.jsonDataService = jsonDataService;
         this.languageCurriculumService = languageCurriculumService;
-        this.curriculumRepository = curriculumRepository;
-        this.curriculumMapper = curriculumMapper;
         this.objectMapper = objectMapper; // Initialize ObjectMapper
+        this.configTopicHasher = configTopicHasher;
+        this.curriculumGraphLoader = curriculumGraphLoader;
+        this.curriculumPersistenceService = curriculumPersistenceService;
+        this.curriculumMerger = curriculumMerger;
+        this.usageTracker = usageTracker;
+        this.diffStage = stage("diff", 2, 16, this::diff, meterRegistry, environment);
+        this.curriculumStage = stage("curriculum", 3, 4, this::generateStructure, meterRegistry, environment);
+        this.enrichmentStage = stage("enrichment", 2, 4, this::enrich, meterRegistry, environment);
+        this.mappingStage = stage("mapping", 2, 4, this::map, meterRegistry, environment);
+        this.persistStage = stage("persist", 1, 4, this::persist, meterRegistry, environment);
+        this.loadDeadline = environment.getProperty("curriculum.load.deadline", Duration.class, Duration.ofHours(6));
+        this.languageDeadline = environment.getProperty("curriculum.load.language-deadline", Duration.class, Duration.ofHours(1));
         System.out.println("CurriculumDataLoaderService: Instance created."); // Added logging
     }
 
-        // Removed @PostConstruct. This method will now only be triggered by the @Scheduled cron job.
-
-        @Scheduled(cron = "0 0 3 * * ?") // Runs every day at 3 AM for periodic updates
-
-        @Transactional
-
-        public void loadAndPersistCurriculumData() {
-
-    
+    private static PipelineStage<LanguageRun, LanguageRun> stage(String name, int defaultWorkers, int defaultQueueCapacity,
+                                                                 Function<LanguageRun, LanguageRun> task,
+                                                                 MeterRegistry meterRegistry, Environment environment) {
+        int workers = environment.getProperty("curriculum.pipeline." + name + ".workers", Integer.class, defaultWorkers);
+        int queueCapacity = environment.getProperty("curriculum.pipeline." + name + ".queue-capacity", Integer.class, defaultQueueCapacity);
+        return new PipelineStage<>(name, workers, queueCapacity, task, meterRegistry);
+    }
 
+    // Removed @PostConstruct. This method will now only be triggered by the @Scheduled cron job.
+    // Deliberately not @Transactional: LLM calls run outside any transaction and each language is
+    // persisted in its own short one (see CurriculumPersistenceService).
+    @Scheduled(cron = "0 0 3 * * ?") // Runs every day at 3 AM for periodic updates
+    public void loadAndPersistCurriculumData() {
         System.out.println("CurriculumDataLoaderService: loadAndPersistCurriculumData method invoked."); // Added logging
+        long startedAt = System.nanoTime();
+        Deadline deadline = Deadline.after(loadDeadline);
 
-    
+        // Work from one snapshot so a refresh mid-run can't mix two config versions
+        CurriculumConfigSnapshot snapshot = jsonDataService.getSnapshot();
+        CurriculumConfigSnapshot.Changes changes = snapshot.changesSince(lastLoadedConfigVersion);
+        System.out.println("Loading curriculum config version " + snapshot.version() + " (changed since version "
+                + changes.fromVersion() + ": " + changes.changed() + ", removed: " + changes.removed() + ").");
 
-    
-        Set<String> languages = jsonDataService.getLanguages();
+        Set<String> languages = snapshot.languages().keySet();
         if (languages.isEmpty()) {
             System.err.println("No languages found from JsonDataService to load curriculum data.");
             return;
         }
 
+        // Token usage of this load is accounted, and held to the llm.usage.*-token-budget, per run
+        LlmUsageTracker.Run usageRun = usageTracker.startRun(languages);
+
+        // Languages flow through the stages independently, so several are in flight at once
+        List<CompletableFuture<Void>> runs = new ArrayList<>();
         for (String language : languages) {
-            System.out.println("Processing curriculum for language: " + language);
-            try {
-                JsonNode fullConfigData = jsonDataService.getCurriculumData(language);
-                if (fullConfigData == null || !fullConfigData.has("topics")) {
-                    System.err.println("No valid topics config found for language: " + language + ", skipping.");
-                    continue;
-                }
-                // Generate a canonical JSON string for consistent hashing
-                String currentConfigTopicsJson = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(fullConfigData.get("topics"));
-                String currentConfigTopicsHash = calculateSHA256Hash(currentConfigTopicsJson); // calculateSHA256Hash will also need to be added
-
-                Optional<CurriculumEntity> existingCurriculum = curriculumRepository.findByLanguage(language);
-
-                if (existingCurriculum.isEmpty() || !currentConfigTopicsHash.equals(existingCurriculum.get().getConfigTopicsHash())) {
-                    System.out.println("Curriculum for " + language + " needs to be generated/updated.");
-
-                    // Generate curriculum using LLM explicitly
-                    CurriculumDTO curriculumDTO = languageCurriculumService.generateCurriculumWithLLM(language, fullConfigData);
-
-                    // Convert DTO to Entity structure using CurriculumMapper
-                    CurriculumEntity curriculumEntity = curriculumMapper.convertToEntity(curriculumDTO, currentConfigTopicsHash);
-                    
-                    existingCurriculum.ifPresent(entity -> curriculumEntity.setId(entity.getId())); // Retain ID if updating
-
-                    curriculumRepository.save(curriculumEntity);
-                    System.out.println("Successfully generated and persisted curriculum for language: " + language);
-                } else {
-                    System.out.println("Curriculum for " + language + " is up to date, skipping LLM generation.");
-                }
-
-            } catch (Exception e) {
-                System.err.println("Error processing curriculum for language " + language + ": " + e.getMessage());
-                e.printStackTrace();
+            JsonNode fullConfigData = snapshot.languages().get(language);
+            if (fullConfigData == null || !fullConfigData.has("topics")) {
+                System.err.println("No valid topics config found for language: " + language + ", skipping.");
+                continue;
+            }
+            runs.add(diffStage.submit(new LanguageRun(language, fullConfigData, deadline))
+                    .thenCompose(next(curriculumStage))
+                    .thenCompose(next(enrichmentStage))
+                    .thenCompose(next(mappingStage))
+                    .thenCompose(next(persistStage))
+                    .handle((run, error) -> {
+                        if (error != null) {
+                            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                            System.err.println("Error processing curriculum for language " + language + ": " + cause.getMessage());
+                            cause.printStackTrace();
+                        }
+                        return null;
+                    }));
+        }
+        CompletableFuture.allOf(runs.toArray(CompletableFuture[]::new)).join();
+        usageTracker.finishRun(usageRun);
+        lastLoadedConfigVersion = snapshot.version();
+        System.out.println("Curriculum load finished for " + runs.size() + " languages in "
+                + Duration.ofNanos(System.nanoTime() - startedAt).toSeconds() + "s.");
+    }
+
+    // A run that was found up to date (null) skips the remaining stages
+    private static Function<LanguageRun, CompletableFuture<LanguageRun>> next(PipelineStage<LanguageRun, LanguageRun> stage) {
+        return run -> run == null ? CompletableFuture.completedFuture(null) : stage.submit(run);
+    }
+
+    private LanguageRun diff(LanguageRun run) {
+        String language = run.language;
+        run.deadline.check("diffing " + language);
+        System.out.println("Processing curriculum for language: " + language);
+        // Hash the topics config per topic (Merkle-style) so we can tell which parts changed
+        JsonNode topicsNode = run.fullConfigData.get("topics");
+        run.hashTree = configTopicHasher.hash(topicsNode);
+        run.trustProfilesHash = configTopicHasher.hashValue(run.fullConfigData.path("trustProfiles"));
+
+        Optional<CurriculumPersistenceService.StoredState> stored = curriculumPersistenceService.loadState(language);
+        try {
+            if (stored.isPresent() && isUpToDate(language, stored.get(), run.hashTree, run.trustProfilesHash, topicsNode)) {
+                System.out.println("Curriculum for " + language + " is up to date, skipping LLM generation.");
+                languageCurriculumService.backfillSnapshot(language, run.hashTree.rootHash());
+                return null;
+            }
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to hash topics config for " + language, e);
+        }
+        System.out.println("Curriculum for " + language + " needs to be generated/updated.");
+
+        // Topics whose config did not change keep their previously generated learning resources
+        run.reusableResources = stored
+                .map(state -> reusableResources(language, state, run.hashTree, run.trustProfilesHash))
+                .orElse(Map.of());
+        return run;
+    }
+
+    // The LLM calls run outside any transaction; a stage worker waits for them, so workers bound concurrency
+    // A late call is cancelled when the run's deadline passes, so no hung call holds a worker forever
+    private LanguageRun generateStructure(LanguageRun run) {
+        run.deadline.check("generating the curriculum for " + run.language);
+        run.deadline = run.deadline.min(Deadline.after(languageDeadline));
+        run.curriculum = run.deadline.enforce(languageCurriculumService.generateCurriculumStructureAsync(run.language, run.fullConfigData),
+                "generating the curriculum for " + run.language).join();
+        return run;
+    }
+
+    private LanguageRun enrich(LanguageRun run) {
+        run.curriculum = run.deadline.enforce(languageCurriculumService
+                        .enrichCurriculumAsync(run.language, run.fullConfigData, run.curriculum, run.reusableResources),
+                "generating learning resources for " + run.language).join();
+        return run;
+    }
+
+    private LanguageRun map(LanguageRun run) {
+        run.contentHash = curriculumMerger.contentHash(run.curriculum);
+        run.prepared = languageCurriculumService.prepare(run.curriculum,
+                new CurriculumVersion(run.hashTree.rootHash(), run.curriculum.modelVersion()));
+        return run;
+    }
+
+    private LanguageRun persist(LanguageRun run) {
+        curriculumPersistenceService.persist(run.language, run.prepared, run.contentHash, run.hashTree, run.trustProfilesHash);
+        // Serve the new curriculum only once it is committed
+        languageCurriculumService.publish(run.language, run.prepared);
+        System.out.println("Successfully generated and persisted curriculum for language: " + run.language);
+        return run;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        List.of(diffStage, curriculumStage, enrichmentStage, mappingStage, persistStage).forEach(PipelineStage::shutdown);
+    }
+
+    // One language's way through the pipeline; each stage fills in its part before handing it on
+    private static final class LanguageRun {
+        private final String language;
+        private final JsonNode fullConfigData;
+        private ConfigTopicHashTree hashTree;
+        private String trustProfilesHash;
+        private Map<String, List<LearningResourceDTO>> reusableResources = Map.of();
+        private CurriculumDTO curriculum;
+        private String contentHash;
+        private CurriculumCache.Entry prepared;
+        private Deadline deadline;
+
+        private LanguageRun(String language, JsonNode fullConfigData, Deadline deadline) {
+            this.language = language;
+            this.fullConfigData = fullConfigData;
+            this.deadline = deadline;
+        }
+    }
+
+    private boolean isUpToDate(String language, CurriculumPersistenceService.StoredState stored, ConfigTopicHashTree hashTree,
+                               String trustProfilesHash, JsonNode topicsNode) throws JsonProcessingException {
+        if (hashTree.rootHash().equals(stored.configTopicsHash())) {
+            if (stored.configTopicOwnHashes().isEmpty() && !hashTree.topicOwnHashes().isEmpty()) {
+                // Stored before own-content hashes existed: add them, so the next change can be narrowed down
+                curriculumPersistenceService.storeConfigHashes(language, hashTree, trustProfilesHash);
             }
-        }    }
+            return true;
+        }
+        // Curricula persisted before per-topic hashing store a hash of the pretty-printed topics JSON.
+        // If that still matches, nothing changed: record the hash tree instead of regenerating.
+        String legacyHash = calculateSHA256Hash(objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(topicsNode));
+        if (legacyHash.equals(stored.configTopicsHash())) {
+            curriculumPersistenceService.storeConfigHashes(language, hashTree, trustProfilesHash);
+            return true;
+        }
+        return false;
+    }
+
+    private Map<String, List<LearningResourceDTO>> reusableResources(String language, CurriculumPersistenceService.StoredState stored,
+                                                                     ConfigTopicHashTree hashTree, String trustProfilesHash) {
+        // Resources are scored against the trust profiles, so they only carry over while those are unchanged
+        if (!trustProfilesHash.equals(stored.configTrustProfilesHash()) || stored.configTopicHashes().isEmpty()) {
+            return Map.of();
+        }
+
+        // Every topic whose own fields changed, or that is new, is affected; a parent whose subtopic
+        // changed is not, unless it changed itself. Rows stored without own-content hashes count as all new.
+        Set<String> changedPaths = hashTree.contentChangedSince(stored.configTopicOwnHashes());
+        System.out.println("Config topics changed for " + language + ": " + changedPaths.size() + " changed, "
+                + hashTree.removedSince(stored.configTopicHashes()).size() + " removed.");
+        Set<String> affectedTitles = new HashSet<>();
+        Set<String> affectedKeys = new HashSet<>();
+        for (String path : changedPaths) {
+            String title = hashTree.topicTitles().get(path);
+            if (title == null) {
+                // A changed topic that can't be matched to the generated ones could keep stale resources anywhere
+                System.out.println("Changed config topic " + path + " of " + language + " has no title, not reusing any resources.");
+                return Map.of();
+            }
+            affectedTitles.add(LearningResourceEnricher.titleKey(title));
+            affectedKeys.add(path.substring(path.lastIndexOf('/') + 1).replaceFirst("#\\d+$", ""));
+        }
+
+        Map<String, List<LearningResourceDTO>> reusable = new HashMap<>();
+        curriculumGraphLoader.loadByLanguage(language).ifPresent(previous -> previous.curriculum().overallLearningPath()
+                .forEach(level -> level.topics().forEach(topic -> collectReusable(topic, affectedTitles, affectedKeys, reusable))));
+        return reusable;
+    }
+
+    // A generated topic is affected when its title, or its id, is exactly that of a changed config topic
+    private void collectReusable(TopicDTO topic, Set<String> affectedTitles, Set<String> affectedKeys,
+                                 Map<String, List<LearningResourceDTO>> reusable) {
+        String titleKey = LearningResourceEnricher.titleKey(topic.title());
+        boolean affected = affectedTitles.contains(titleKey)
+                || (topic.id() != null && affectedKeys.contains(topic.id().trim().toLowerCase().replace('/', '-')));
+        if (!affected && topic.learningResources() != null && !topic.learningResources().isEmpty()) {
+            reusable.putIfAbsent(titleKey, topic.learningResources());
+        }
+        if (topic.subtopics() != null) {
+            topic.subtopics().forEach(subtopic -> collectReusable(subtopic, affectedTitles, affectedKeys, reusable));
+        }
+    }
 
-    private String calculateSHA256Hash(String text) {
+    // Package-private for the benchmarks in src/jmh/java
+    static String calculateSHA256Hash(String text) {
         try {
             MessageDigest digest = MessageDigest.getInstance("SHA-256");
             byte[] hash = digest.digest(text.getBytes());
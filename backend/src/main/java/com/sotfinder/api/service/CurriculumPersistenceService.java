@@ -0,0 +1,121 @@
+package com.sotfinder.api.service;
+
+import com.sotfinder.api.language.dto.CurriculumDTO;
+import com.sotfinder.api.language.entity.CurriculumEntity;
+import com.sotfinder.api.language.repository.CurriculumRepository;
+import com.sotfinder.api.language.service.CurriculumCache;
+import com.sotfinder.api.language.service.CurriculumMapper;
+import com.sotfinder.api.language.service.CurriculumMerger;
+import com.sotfinder.api.language.service.LanguageCurriculumService;
+
+import jakarta.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The database side of the nightly curriculum load. Every method is its own short transaction, so
+ * no connection is held while the LLM generates and one language's failure can't roll back another.
+ */
+@Service
+public class CurriculumPersistenceService {
+
+    // What the loader needs to know about a persisted curriculum to decide whether to regenerate it
+    public record StoredState(String configTopicsHash, Map<String, String> configTopicHashes, Map<String, String> configTopicOwnHashes,
+                              String configTrustProfilesHash) {
+    }
+
+    private final CurriculumRepository curriculumRepository;
+    private final CurriculumMapper curriculumMapper;
+    private final CurriculumMerger curriculumMerger;
+    private final LanguageCurriculumService languageCurriculumService;
+    private final Statistics statistics;
+
+    public CurriculumPersistenceService(
+            CurriculumRepository curriculumRepository,
+            CurriculumMapper curriculumMapper,
+            CurriculumMerger curriculumMerger,
+            LanguageCurriculumService languageCurriculumService,
+            EntityManagerFactory entityManagerFactory) {
+        this.curriculumRepository = curriculumRepository;
+        this.curriculumMapper = curriculumMapper;
+        this.curriculumMerger = curriculumMerger;
+        this.languageCurriculumService = languageCurriculumService;
+        // Only counts when hibernate.generate_statistics is on
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<StoredState> loadState(String language) {
+        return curriculumRepository.findByLanguage(language)
+                .map(entity -> new StoredState(
+                        entity.getConfigTopicsHash(),
+                        Map.copyOf(entity.getConfigTopicHashes()),
+                        Map.copyOf(entity.getConfigTopicOwnHashes()),
+                        entity.getConfigTrustProfilesHash()));
+    }
+
+    // Replaces a legacy whole-config hash with the per-topic hash tree, without regenerating
+    @Transactional
+    public void storeConfigHashes(String language, ConfigTopicHashTree hashTree, String trustProfilesHash) {
+        curriculumRepository.findByLanguage(language).ifPresent(entity -> {
+            entity.setConfigTopicsHash(hashTree.rootHash());
+            entity.setConfigTopicHashes(new HashMap<>(hashTree.topicHashes()));
+            entity.setConfigTopicOwnHashes(new HashMap<>(hashTree.topicOwnHashes()));
+            entity.setConfigTrustProfilesHash(trustProfilesHash);
+        });
+    }
+
+    /**
+     * Writes a generated curriculum (merged into the existing rows, if any) together with its
+     * snapshot. {@code prepared} carries the curriculum, its serialized form and the version it is
+     * stored with.
+     */
+    @Transactional
+    public void persist(String language, CurriculumCache.Entry prepared, String contentHash, ConfigTopicHashTree hashTree,
+                        String trustProfilesHash) {
+        long statementsBefore = statistics.getPrepareStatementCount();
+        CurriculumDTO curriculumDTO = prepared.curriculum();
+        Optional<CurriculumEntity> existingCurriculum = curriculumRepository.findByLanguage(language);
+        CurriculumEntity curriculumEntity;
+        if (existingCurriculum.isPresent()) {
+            // Update the persisted graph in place, writing only what actually changed
+            curriculumEntity = existingCurriculum.get();
+            if (!curriculumMerger.merge(curriculumEntity, curriculumDTO, contentHash)) {
+                System.out.println("Generated content for " + language + " is unchanged, only updating config hashes.");
+            }
+        } else {
+            // Convert DTO to Entity structure using CurriculumMapper
+            curriculumEntity = curriculumMapper.convertToEntity(curriculumDTO, hashTree.rootHash());
+            // Stored under the name it is looked up by, not whatever name the model wrote into the curriculum
+            curriculumEntity.setLanguage(language);
+            curriculumEntity.setContentHash(contentHash);
+        }
+        curriculumEntity.setConfigTopicsHash(hashTree.rootHash());
+        if (!curriculumEntity.getConfigTopicHashes().equals(hashTree.topicHashes())) {
+            curriculumEntity.getConfigTopicHashes().clear();
+            curriculumEntity.getConfigTopicHashes().putAll(hashTree.topicHashes());
+        }
+        if (!curriculumEntity.getConfigTopicOwnHashes().equals(hashTree.topicOwnHashes())) {
+            curriculumEntity.getConfigTopicOwnHashes().clear();
+            curriculumEntity.getConfigTopicOwnHashes().putAll(hashTree.topicOwnHashes());
+        }
+        curriculumEntity.setConfigTrustProfilesHash(trustProfilesHash);
+
+        curriculumRepository.save(curriculumEntity);
+        curriculumRepository.flush();
+        if (statistics.isStatisticsEnabled()) {
+            System.out.println("Persisting curriculum for " + language + " took "
+                    + (statistics.getPrepareStatementCount() - statementsBefore) + " JDBC statements.");
+        }
+
+        languageCurriculumService.storeSnapshot(language, prepared);
+    }
+}
@@ -0,0 +1,125 @@
+package com.sotfinder.api.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.sotfinder.api.language.dto.StreamedTopicDTO;
+import com.sotfinder.api.language.dto.TopicDTO;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Parses a curriculum JSON document while it is still being streamed, and reports every topic of
+ * {@code overall_learning_path[].topics[]} (with its subtopics) as soon as its object closes.
+ * Uses Jackson's non-blocking parser, so each delta is fed as it arrives and nothing is re-parsed.
+ * Text before the first '{' (such as a markdown fence) and after the document is skipped. This is
+ * only a preview: if the stream can't be parsed incrementally it stops reporting, and the full
+ * completion is still parsed the usual way at the end.
+ */
+class CurriculumStreamParser {
+
+    private final ObjectMapper objectMapper;
+    private final Consumer<StreamedTopicDTO> onTopic;
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+
+    private boolean started;
+    private boolean finished;
+    private int levelIndex = -1;
+    private String level;
+    private int topicIndex;
+    private TokenBuffer topicTokens;
+    private int topicDepth;
+
+    CurriculumStreamParser(ObjectMapper objectMapper, Consumer<StreamedTopicDTO> onTopic) {
+        this.objectMapper = objectMapper;
+        this.onTopic = onTopic;
+        try {
+            this.parser = objectMapper.getFactory().createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to create streaming JSON parser", e);
+        }
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    void feed(String delta) {
+        if (finished) {
+            return;
+        }
+        if (!started) {
+            int firstBrace = delta.indexOf('{');
+            if (firstBrace == -1) {
+                return;
+            }
+            delta = delta.substring(firstBrace);
+            started = true;
+        }
+        try {
+            // Deltas always end on a character boundary, so encoding them one by one is safe
+            byte[] bytes = delta.getBytes(StandardCharsets.UTF_8);
+            feeder.feedInput(bytes, 0, bytes.length);
+            JsonToken token;
+            while (!finished && (token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                handle(token);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("CurriculumStreamParser: Stopped streaming topics: " + e.getMessage());
+            finished = true;
+        }
+    }
+
+    private void handle(JsonToken token) throws IOException {
+        if (topicTokens != null) {
+            topicTokens.copyCurrentEvent(parser);
+            if (token.isStructStart()) {
+                topicDepth++;
+            } else if (token.isStructEnd() && --topicDepth == 0) {
+                TopicDTO topic = objectMapper.readValue(topicTokens.asParser(), TopicDTO.class);
+                topicTokens = null;
+                onTopic.accept(new StreamedTopicDTO(levelIndex, level, topicIndex++, topic));
+            }
+            return;
+        }
+
+        JsonStreamContext context = parser.getParsingContext();
+        if (token == JsonToken.START_OBJECT && isLevel(context)) {
+            levelIndex++;
+            level = null;
+            topicIndex = 0;
+        } else if (token == JsonToken.START_OBJECT && isTopic(context)) {
+            topicTokens = new TokenBuffer(parser);
+            topicTokens.copyCurrentEvent(parser);
+            topicDepth = 1;
+        } else if (token == JsonToken.VALUE_STRING && "level".equals(context.getCurrentName()) && isLevel(context)) {
+            level = parser.getText();
+        } else if (token == JsonToken.END_OBJECT && context.inRoot()) {
+            finished = true; // End of the document; anything after it is not JSON
+        }
+    }
+
+    // An element of the root object's overall_learning_path array
+    private static boolean isLevel(JsonStreamContext context) {
+        JsonStreamContext array = context.getParent();
+        if (!context.inObject() || array == null || !array.inArray()) {
+            return false;
+        }
+        JsonStreamContext root = array.getParent();
+        return root != null && root.inObject() && "overall_learning_path".equals(root.getCurrentName())
+                && root.getParent() != null && root.getParent().inRoot();
+    }
+
+    // An element of a level's topics array
+    private static boolean isTopic(JsonStreamContext context) {
+        JsonStreamContext array = context.getParent();
+        if (!context.inObject() || array == null || !array.inArray()) {
+            return false;
+        }
+        JsonStreamContext level = array.getParent();
+        return level != null && "topics".equals(level.getCurrentName()) && isLevel(level);
+    }
+}
@@ -0,0 +1,70 @@
+package com.sotfinder.api.service;
+
+import com.sotfinder.api.exception.DeadlineExceededException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A point in time by which a piece of work has to be done, e.g. one language of the nightly load.
+ * {@link #enforce} fails a future with {@link DeadlineExceededException} once the deadline passes;
+ * since that counts as cancellation, the LLM calls behind the future are aborted as well.
+ */
+public record Deadline(long expiresAtNanos) {
+
+    private static final ScheduledThreadPoolExecutor TIMER = timer();
+
+    public static Deadline after(Duration budget) {
+        return new Deadline(System.nanoTime() + budget.toNanos());
+    }
+
+    // Whichever of the two expires first
+    public Deadline min(Deadline other) {
+        return expiresAtNanos - other.expiresAtNanos <= 0 ? this : other;
+    }
+
+    public Duration remaining() {
+        return Duration.ofNanos(Math.max(0, expiresAtNanos - System.nanoTime()));
+    }
+
+    public boolean isExpired() {
+        return expiresAtNanos - System.nanoTime() <= 0;
+    }
+
+    // Fails fast before work is started that could not finish in time anyway
+    public void check(String what) {
+        if (isExpired()) {
+            throw new DeadlineExceededException("Deadline passed before " + what);
+        }
+    }
+
+    /** Fails {@code future} when the deadline passes before it completes, and returns it. */
+    public <T> CompletableFuture<T> enforce(CompletableFuture<T> future, String what) {
+        if (future.isDone()) {
+            return future;
+        }
+        long remainingNanos = expiresAtNanos - System.nanoTime();
+        if (remainingNanos <= 0) {
+            future.completeExceptionally(new DeadlineExceededException("Deadline passed before " + what));
+            return future;
+        }
+        ScheduledFuture<?> timeout = TIMER.schedule(
+                () -> future.completeExceptionally(new DeadlineExceededException("Deadline passed during " + what)),
+                remainingNanos, TimeUnit.NANOSECONDS);
+        future.whenComplete((value, error) -> timeout.cancel(false));
+        return future;
+    }
+
+    private static ScheduledThreadPoolExecutor timer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "deadline-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true); // Work that finishes in time doesn't leave its timer queued
+        return timer;
+    }
+}
@@ -1,5 +1,7 @@
 package com.sotfinder.api.service;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -9,27 +11,41 @@ import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.util.Iterator;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 public class JsonDataService {
 
     private final HttpClient httpClient;
     private final ObjectMapper objectMapper;
-    private final ConcurrentHashMap<String, JsonNode> curriculumCache = new ConcurrentHashMap<>();
+    // Replaced wholesale on every refresh that changed something; never mutated in place
+    private volatile CurriculumConfigSnapshot snapshot = CurriculumConfigSnapshot.EMPTY;
 
     @Value("${CURRICULUM_DATA_URL}") // Spring Boot property name
     private String curriculumDataUrl;
+    // Bounds the whole transfer, body included, not just the wait for the response headers
+    @Value("${curriculum.data.read-timeout:PT30S}")
+    private Duration readTimeout;
 
-    public JsonDataService(ObjectMapper objectMapper) {
-        this.httpClient = HttpClient.newHttpClient();
+    // Validators of the last fully processed response, sent back so an unchanged config costs a 304
+    private volatile String lastETag;
+    private volatile String lastModified;
+
+    // The shared client (see HttpClientConfig); this endpoint's timeout is curriculum.data.read-timeout
+    public JsonDataService(ObjectMapper objectMapper, HttpClient httpClient) {
+        this.httpClient = httpClient;
         this.objectMapper = objectMapper;
         // curriculumDataUrl is now injected by Spring via @Value
     }
@@ -47,35 +63,109 @@ public class JsonDataService {
         }
         System.out.println("JsonDataService: Attempting to fetch curriculum data from: " + curriculumDataUrl);
         try {
-            HttpRequest request = HttpRequest.newBuilder()
+            HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
                     .uri(URI.create(curriculumDataUrl))
-                    .build();
-
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-            if (response.statusCode() == 200) {
-                JsonNode rootNode = objectMapper.readTree(response.body());
-                if (rootNode.isArray()) {
-                    for (JsonNode node : rootNode) {
-                        if (node.has("name")) {
-                            String name = node.get("name").asText();
-                            String cleanName = cleanLanguageIdentifier(name);
-                            curriculumCache.put(cleanName, node); // Store the entire node
-                        }
-                    }
-                } else {
-                    System.err.println("JsonDataService: Fetched data is not a JSON array as expected.");
+                    .timeout(readTimeout);
+            if (lastETag != null) {
+                requestBuilder.header("If-None-Match", lastETag);
+            }
+            if (lastModified != null) {
+                requestBuilder.header("If-Modified-Since", lastModified);
+            }
+
+            // The deadline covers the whole transfer: before the headers it aborts the exchange, afterwards it
+            // closes the body the parser is reading, so a stalled server can't hold the scheduler thread forever
+            Deadline deadline = Deadline.after(readTimeout);
+            CompletableFuture<HttpResponse<InputStream>> exchange = httpClient.sendAsync(requestBuilder.build(), HttpResponse.BodyHandlers.ofInputStream());
+            CompletableFuture<Void> transfer = deadline.enforce(new CompletableFuture<>(), "fetching the curriculum config");
+            transfer.whenComplete((ignored, error) -> {
+                if (transfer.isCancelled()) {
+                    exchange.cancel(true);
+                    exchange.thenAccept(response -> closeQuietly(response.body()));
                 }
-            } else {
-                System.err.println("JsonDataService: Failed to fetch curriculum data. Status code: " + response.statusCode() + ", body: " + response.body());
+            });
+            try {
+                handleResponse(exchange.join());
+            } catch (CompletionException e) {
+                throw transferFailure(transfer, e.getCause());
+            } catch (CancellationException | IOException e) {
+                throw transferFailure(transfer, e);
+            } finally {
+                transfer.complete(null); // Stops the deadline's timer
             }
-        } catch (IOException | InterruptedException e) {
+        } catch (IOException e) {
             System.err.println("JsonDataService: Exception while fetching curriculum data: " + e.getMessage());
             e.printStackTrace();
         }
     }
 
-    private String cleanLanguageIdentifier(String name) {
+    private void handleResponse(HttpResponse<InputStream> response) throws IOException {
+        try (InputStream body = response.body()) {
+            if (response.statusCode() == 304) {
+                System.out.println("JsonDataService: Curriculum data not modified since last fetch.");
+            } else if (response.statusCode() == 200) {
+                if (readLanguages(body)) {
+                    // Only remember the validators once the whole body was processed
+                    lastETag = response.headers().firstValue("ETag").orElse(null);
+                    lastModified = response.headers().firstValue("Last-Modified").orElse(null);
+                }
+            } else {
+                String errorBody = new String(body.readNBytes(4096), StandardCharsets.UTF_8);
+                System.err.println("JsonDataService: Failed to fetch curriculum data. Status code: " + response.statusCode() + ", body: " + errorBody);
+            }
+        }
+    }
+
+    // Whatever the transfer failed with, reported as the deadline when that is what cut it off
+    private IOException transferFailure(CompletableFuture<Void> transfer, Throwable cause) {
+        if (transfer.isCancelled()) {
+            return new IOException("No complete response within " + readTimeout, cause);
+        }
+        return cause instanceof IOException ioException ? ioException : new IOException(cause);
+    }
+
+    private static void closeQuietly(InputStream body) {
+        try {
+            body.close();
+        } catch (IOException e) {
+            // Already failing the fetch
+        }
+    }
+
+    // Streams the config array, handling each language node as soon as it has been parsed
+    private boolean readLanguages(InputStream body) throws IOException {
+        Map<String, JsonNode> fetchedLanguages = new LinkedHashMap<>();
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                System.err.println("JsonDataService: Fetched data is not a JSON array as expected.");
+                return false;
+            }
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                JsonNode node = objectMapper.readTree(parser);
+                if (node != null && node.has("name")) {
+                    String name = node.get("name").asText();
+                    String cleanName = cleanLanguageIdentifier(name);
+                    fetchedLanguages.put(cleanName, node); // Store the entire node
+                }
+            }
+        }
+        publish(fetchedLanguages);
+        return true;
+    }
+
+    private synchronized void publish(Map<String, JsonNode> fetchedLanguages) {
+        CurriculumConfigSnapshot current = snapshot;
+        CurriculumConfigSnapshot next = current.next(fetchedLanguages);
+        if (next != current) {
+            snapshot = next;
+            CurriculumConfigSnapshot.Changes changes = next.changesSince(current.version());
+            System.out.println("JsonDataService: Published config version " + next.version() + " with " + next.languages().size()
+                    + " languages (changed: " + changes.changed() + ", removed: " + changes.removed() + ").");
+        }
+    }
+
+    // Package-private for the benchmarks in src/jmh/java
+    static String cleanLanguageIdentifier(String name) {
         String cleanedName = name.toLowerCase();
         
         // Remove common descriptive phrases
@@ -95,12 +185,19 @@ public class JsonDataService {
     }
 
     public JsonNode getCurriculumData(String language) {
-        return curriculumCache.get(language.toLowerCase());
+        return snapshot.languages().get(language.toLowerCase());
     }
 
     public Set<String> getLanguages() {
-        Set<String> languages = curriculumCache.keySet();
-        System.out.println("JsonDataService: getLanguages() returning " + languages.size() + " languages.");
-        return languages;
+        return snapshot.languages().keySet();
+    }
+
+    // The current config as one consistent, immutable view
+    public CurriculumConfigSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public CurriculumConfigSnapshot.Changes getChangesSince(long version) {
+        return snapshot.changesSince(version);
     }
 }
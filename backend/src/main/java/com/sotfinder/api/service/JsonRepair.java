@@ -0,0 +1,83 @@
+package com.sotfinder.api.service;
+
+/**
+ * Cheap repair of a completion that was cut off (e.g. by the output token limit) in the middle of
+ * a list: keeps the complete elements of the root object's first-level arrays, drops the element
+ * that was being written, and closes everything that was still open. One scan, no parsing.
+ */
+final class JsonRepair {
+
+    private JsonRepair() {
+    }
+
+    /**
+     * Returns the repaired document, or null when there is nothing worth keeping (the text ends
+     * before the first such array was opened).
+     */
+    static String closeAfterLastCompleteElement(String json) {
+        int start = json.indexOf('{');
+        if (start == -1) {
+            return null;
+        }
+        char[] open = new char[json.length()];
+        int depth = 0;
+        boolean inString = false;
+        boolean escaped = false;
+        int cut = -1;
+        String closers = null;
+
+        for (int i = start; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                }
+                continue;
+            }
+            switch (c) {
+                case '"' -> inString = true;
+                case '{', '[' -> {
+                    open[depth++] = c;
+                    if (depth == 2 && c == '[') {
+                        // An empty list is a valid place to stop
+                        cut = i + 1;
+                        closers = closers(open, depth);
+                    }
+                }
+                case '}', ']' -> {
+                    if (depth == 0) {
+                        return null;
+                    }
+                    depth--;
+                    if (depth == 0) {
+                        return json.substring(start, i + 1); // Not truncated after all
+                    }
+                    if (depth == 2 && open[1] == '[') {
+                        // An element of a first-level array is complete
+                        cut = i + 1;
+                        closers = closers(open, depth);
+                    } else if (depth == 1) {
+                        // A whole first-level value is complete
+                        cut = i + 1;
+                        closers = "}";
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        return cut == -1 ? null : json.substring(start, cut) + closers;
+    }
+
+    private static String closers(char[] open, int depth) {
+        StringBuilder closers = new StringBuilder(depth);
+        for (int i = depth - 1; i >= 0; i--) {
+            closers.append(open[i] == '{' ? '}' : ']');
+        }
+        return closers.toString();
+    }
+}
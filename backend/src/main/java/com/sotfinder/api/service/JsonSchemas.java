@@ -0,0 +1,146 @@
+package com.sotfinder.api.service;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.RecordComponent;
+import java.lang.reflect.Type;
+import java.time.temporal.Temporal;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Derives JSON schemas from the DTO records in the shape the provider's strict structured-output
+ * mode accepts: every property is required, no additional properties, nested records go to
+ * {@code $defs} (so recursive ones such as {@code TopicDTO.subtopics} work), and property names
+ * follow {@code @JsonProperty}. Strings may be null, as the prompts allow.
+ */
+final class JsonSchemas {
+
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+
+    private JsonSchemas() {
+    }
+
+    // Schema of a root record
+    static ObjectNode of(Class<? extends Record> type) {
+        return of(type, Set.of());
+    }
+
+    // Schema of a root record without the named properties, on any record in it; they parse as null
+    static ObjectNode of(Class<? extends Record> type, Set<String> omittedProperties) {
+        ObjectNode defs = NODES.objectNode();
+        ObjectNode root = objectSchema(type, defs, omittedProperties);
+        if (!defs.isEmpty()) {
+            root.set("$defs", defs);
+        }
+        return root;
+    }
+
+    // {"<property>": [items...]}: the root of a structured output must be an object, never an array
+    static ObjectNode listOf(String property, Class<? extends Record> itemType) {
+        ObjectNode defs = NODES.objectNode();
+        ObjectNode root = object();
+        root.withObject("/properties").set(property, array(reference(itemType, defs, Set.of())));
+        root.withArray("/required").add(property);
+        root.set("$defs", defs);
+        return root;
+    }
+
+    /** {"results": [{"id": ..., "<property>": [items...]}]}: a map from id to items, which strict schemas can't express directly. */
+    static ObjectNode listsById(String property, Class<? extends Record> itemType) {
+        ObjectNode defs = NODES.objectNode();
+        ObjectNode result = object();
+        result.withObject("/properties").set("id", type("string"));
+        result.withObject("/properties").set(property, array(reference(itemType, defs, Set.of())));
+        result.withArray("/required").add("id").add(property);
+
+        ObjectNode root = object();
+        root.withObject("/properties").set("results", array(result));
+        root.withArray("/required").add("results");
+        root.set("$defs", defs);
+        return root;
+    }
+
+    private static ObjectNode objectSchema(Class<?> type, ObjectNode defs, Set<String> omitted) {
+        ObjectNode schema = object();
+        ObjectNode properties = schema.withObject("/properties");
+        ArrayNode required = schema.withArray("/required");
+        for (RecordComponent component : type.getRecordComponents()) {
+            // @JsonProperty on a record component lands on the accessor, field and constructor parameter
+            JsonProperty jsonProperty = component.getAccessor().getAnnotation(JsonProperty.class);
+            String name = jsonProperty != null && !jsonProperty.value().isEmpty() ? jsonProperty.value() : component.getName();
+            if (omitted.contains(name)) {
+                continue;
+            }
+            properties.set(name, schemaOf(component.getGenericType(), defs, omitted));
+            required.add(name);
+        }
+        return schema;
+    }
+
+    private static ObjectNode schemaOf(Type type, ObjectNode defs, Set<String> omitted) {
+        if (type instanceof ParameterizedType parameterized && parameterized.getRawType() == List.class) {
+            return array(schemaOf(parameterized.getActualTypeArguments()[0], defs, omitted));
+        }
+        Class<?> raw = (Class<?>) type;
+        if (raw == String.class || Temporal.class.isAssignableFrom(raw)) {
+            return nullable("string");
+        }
+        if (raw == int.class || raw == long.class) {
+            return type("integer");
+        }
+        if (raw == Integer.class || raw == Long.class) {
+            return nullable("integer");
+        }
+        if (raw == double.class || raw == float.class) {
+            return type("number");
+        }
+        if (raw == Double.class || raw == Float.class) {
+            return nullable("number");
+        }
+        if (raw == boolean.class || raw == Boolean.class) {
+            return type("boolean");
+        }
+        if (raw.isRecord()) {
+            return reference(raw, defs, omitted);
+        }
+        throw new IllegalArgumentException("No JSON schema mapping for " + raw.getName());
+    }
+
+    private static ObjectNode reference(Class<?> type, ObjectNode defs, Set<String> omitted) {
+        String name = type.getSimpleName();
+        if (!defs.has(name)) {
+            defs.set(name, NODES.objectNode()); // Placeholder first, so a record that contains itself ends the recursion
+            defs.set(name, objectSchema(type, defs, omitted));
+        }
+        return NODES.objectNode().put("$ref", "#/$defs/" + name);
+    }
+
+    private static ObjectNode object() {
+        ObjectNode schema = type("object");
+        schema.putObject("properties");
+        schema.putArray("required");
+        schema.put("additionalProperties", false);
+        return schema;
+    }
+
+    private static ObjectNode array(ObjectNode items) {
+        ObjectNode schema = type("array");
+        schema.set("items", items);
+        return schema;
+    }
+
+    private static ObjectNode type(String type) {
+        return NODES.objectNode().put("type", type);
+    }
+
+    private static ObjectNode nullable(String type) {
+        ObjectNode schema = NODES.objectNode();
+        schema.putArray("type").add(type).add("null");
+        return schema;
+    }
+}
@@ -1,7 +1,17 @@
 package com.sotfinder.api.service;
 
 import com.sotfinder.api.language.dto.CurriculumDTO;
+import com.sotfinder.api.language.dto.StreamedTopicDTO;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public interface LLMService {
     CurriculumDTO generateCurriculum(String language, String curriculumData);
+
+    // Completes once the LLM has answered; cancelling the future aborts the underlying request
+    CompletableFuture<CurriculumDTO> generateCurriculumAsync(String language, String curriculumData);
+
+    // Like generateCurriculumAsync, but streams the answer and hands each top-level topic to onTopic as soon as it is complete
+    CompletableFuture<CurriculumDTO> streamCurriculumAsync(String language, String curriculumData, Consumer<StreamedTopicDTO> onTopic);
 }
@@ -6,7 +6,17 @@ import com.sotfinder.api.language.dto.TrustProfileDTO;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public interface LearningResourceService {
     List<LearningResourceDTO> generateLearningResources(String language, String subtopicTitle, JsonNode trustProfileData);
+
+    // Completes once the LLM has answered; cancelling the future aborts the underlying request
+    CompletableFuture<List<LearningResourceDTO>> generateLearningResourcesAsync(String language, String subtopicTitle, JsonNode trustProfileData);
+
+    // Generates resources for several subtopics at once, keyed by the ids of subtopicTitlesById
+    CompletableFuture<Map<String, List<LearningResourceDTO>>> generateLearningResourcesBatchAsync(String language, Map<String, String> subtopicTitlesById, JsonNode trustProfileData);
+
+    // Number of subtopics a single batch request for language should carry
+    int getBatchSize(String language);
 }
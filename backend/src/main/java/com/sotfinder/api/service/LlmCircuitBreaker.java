@@ -0,0 +1,149 @@
+package com.sotfinder.api.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Count-based circuit breaker for the LLM provider. It opens when at least {@code failure-rate} of
+ * the last {@code window-size} calls failed with a transient error (timeouts, connection errors,
+ * 429s and 5xx), rejects calls while open, and after {@code open-duration} lets
+ * {@code half-open-calls} probe calls through: if they all succeed the breaker closes, otherwise
+ * it opens again. Answers that were merely unusable don't count against the provider.
+ */
+@Component
+public class LlmCircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openNanos;
+    private final int halfOpenCalls;
+    private final Counter rejected;
+    private final Counter opened;
+
+    // Guarded by this
+    private final boolean[] window;
+    private int windowPosition;
+    private int windowCount;
+    private int windowFailures;
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int probesStarted;
+    private int probesSucceeded;
+
+    public LlmCircuitBreaker(
+            @Value("${llm.circuit-breaker.window-size:20}") int windowSize,
+            @Value("${llm.circuit-breaker.minimum-calls:10}") int minimumCalls,
+            @Value("${llm.circuit-breaker.failure-rate:0.5}") double failureRateThreshold,
+            @Value("${llm.circuit-breaker.open-duration:PT2M}") Duration openDuration,
+            @Value("${llm.circuit-breaker.half-open-calls:2}") int halfOpenCalls,
+            MeterRegistry meterRegistry) {
+        this.window = new boolean[windowSize];
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.halfOpenCalls = halfOpenCalls;
+        this.rejected = meterRegistry.counter("llm.circuit-breaker.calls", "outcome", "rejected");
+        this.opened = meterRegistry.counter("llm.circuit-breaker.transitions", "to", "open");
+        for (State gaugeState : State.values()) {
+            meterRegistry.gauge("llm.circuit-breaker.state", Tags.of("state", gaugeState.name().toLowerCase()), this,
+                    breaker -> breaker.getState() == gaugeState ? 1 : 0);
+        }
+        meterRegistry.gauge("llm.circuit-breaker.failure-rate", this, LlmCircuitBreaker::getFailureRate);
+    }
+
+    /** Returns false, and counts the rejection, when the call must not be attempted right now. */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            state = State.HALF_OPEN;
+            probesStarted = 0;
+            probesSucceeded = 0;
+            System.out.println("LlmCircuitBreaker: Half-open, probing the LLM provider.");
+        }
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.HALF_OPEN && probesStarted < halfOpenCalls) {
+            probesStarted++;
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++probesSucceeded >= halfOpenCalls) {
+                state = State.CLOSED;
+                clearWindow();
+                System.out.println("LlmCircuitBreaker: Closed, the LLM provider is healthy again.");
+            }
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open("a probe call failed");
+            return;
+        }
+        if (state == State.CLOSED) {
+            record(true);
+            if (windowCount >= minimumCalls && getFailureRate() >= failureRateThreshold) {
+                open(windowFailures + " of the last " + windowCount + " LLM calls failed");
+            }
+        }
+    }
+
+    // A call that ended without telling anything about the provider (e.g. cancelled) frees its probe slot
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN && probesStarted > probesSucceeded) {
+            probesStarted--;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized double getFailureRate() {
+        return windowCount == 0 ? 0 : (double) windowFailures / windowCount;
+    }
+
+    private void record(boolean failure) {
+        if (windowCount == window.length) {
+            if (window[windowPosition]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowPosition] = failure;
+        if (failure) {
+            windowFailures++;
+        }
+        windowPosition = (windowPosition + 1) % window.length;
+    }
+
+    private void open(String reason) {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+        opened.increment();
+        System.err.println("LlmCircuitBreaker: Opened because " + reason + "; failing fast for " + Duration.ofNanos(openNanos) + ".");
+        clearWindow();
+    }
+
+    private void clearWindow() {
+        windowPosition = 0;
+        windowCount = 0;
+        windowFailures = 0;
+    }
+}
@@ -0,0 +1,147 @@
+package com.sotfinder.api.service;
+
+import com.sotfinder.api.language.entity.LlmCompletionEntity;
+import com.sotfinder.api.language.repository.LlmCompletionRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Durable, content-addressed cache of LLM completions stored in Postgres. Entries are keyed by the
+ * SHA-256 of the model and the rendered prompt (template plus variables), so an identical prompt
+ * never pays for a second round-trip. Expired entries and entries beyond the size bounds are
+ * evicted by a scheduled job.
+ */
+@Service
+public class LlmCompletionCache {
+
+    private final LlmCompletionRepository repository;
+    // JDBC blocks, so lookups and writes run on virtual threads instead of the caller's
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter writes;
+    private final Counter evictions;
+
+    @Value("${llm.cache.enabled:true}")
+    private boolean enabled;
+    @Value("${llm.cache.ttl:P30D}")
+    private Duration ttl;
+    @Value("${llm.cache.max-entries:50000}")
+    private long maxEntries;
+    @Value("${llm.cache.max-bytes:536870912}")
+    private long maxBytes;
+
+    public LlmCompletionCache(LlmCompletionRepository repository, MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.hits = meterRegistry.counter("llm.cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("llm.cache.requests", "result", "miss");
+        this.writes = meterRegistry.counter("llm.cache.writes");
+        this.evictions = meterRegistry.counter("llm.cache.evictions");
+    }
+
+    public String keyFor(String model, String prompt) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(model.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0); // Separator so model and prompt can't run into each other
+            digest.update(prompt.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 algorithm not available", e);
+        }
+    }
+
+    public CompletableFuture<Optional<String>> lookup(String cacheKey) {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                Optional<LlmCompletionEntity> entry = repository.findById(cacheKey)
+                        .filter(cached -> cached.getCreatedAt().isAfter(LocalDateTime.now().minus(ttl)));
+                if (entry.isPresent()) {
+                    hits.increment();
+                    repository.touch(cacheKey, LocalDateTime.now());
+                    return Optional.of(entry.get().getContent());
+                }
+            } catch (RuntimeException e) {
+                // The cache is an optimization; a failing lookup must not fail the generation
+                System.err.println("LlmCompletionCache: Lookup failed, treating as a miss: " + e.getMessage());
+            }
+            misses.increment();
+            return Optional.empty();
+        }, executor);
+    }
+
+    public void store(String cacheKey, String model, String content) {
+        if (!enabled) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                LlmCompletionEntity entry = new LlmCompletionEntity();
+                LocalDateTime now = LocalDateTime.now();
+                entry.setCacheKey(cacheKey);
+                entry.setModel(model);
+                entry.setContent(content);
+                entry.setSizeBytes(content.getBytes(StandardCharsets.UTF_8).length);
+                entry.setCreatedAt(now);
+                entry.setLastAccessedAt(now);
+                repository.save(entry);
+                writes.increment();
+            } catch (RuntimeException e) {
+                System.err.println("LlmCompletionCache: Failed to store completion: " + e.getMessage());
+            }
+        });
+    }
+
+    public void evict(String cacheKey) {
+        if (!enabled) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                repository.deleteById(cacheKey);
+                evictions.increment();
+            } catch (RuntimeException e) {
+                System.err.println("LlmCompletionCache: Failed to evict completion: " + e.getMessage());
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${llm.cache.eviction-interval:PT1H}")
+    public void evictExpiredAndOversized() {
+        if (!enabled) {
+            return;
+        }
+        int expired = repository.deleteCreatedBefore(LocalDateTime.now().minus(ttl));
+        int oversized = repository.deleteLeastRecentlyUsedBeyond(maxEntries, maxBytes);
+        evictions.increment(expired + oversized);
+        if (expired + oversized > 0) {
+            System.out.println("LlmCompletionCache: Evicted " + expired + " expired and " + oversized + " least recently used completions.");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
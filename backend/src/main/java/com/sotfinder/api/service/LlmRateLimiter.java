@@ -0,0 +1,344 @@
+package com.sotfinder.api.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Shared, non-blocking limiter for all calls to the LLM provider. A call waits for a free
+ * concurrency slot, a request from the requests-per-minute budget and its estimated tokens from
+ * the tokens-per-minute budget. The budgets follow the provider's {@code x-ratelimit-*} headers, a
+ * 429 pauses every caller for its {@code Retry-After}, and the concurrency limit adapts AIMD-style:
+ * it grows by one per round of fast successful calls and shrinks on 429s and slow responses. What
+ * counts as slow scales with the output a call may produce, so a long batch completion is not
+ * mistaken for congestion.
+ */
+@Component
+public class LlmRateLimiter {
+
+    private static final Pattern DURATION_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|h|m|s)");
+
+    private final int charsPerToken;
+    private final int expectedOutputTokens;
+    private final double minConcurrency;
+    private final double maxConcurrency;
+    private final long latencyThresholdNanos;
+    private final Counter throttled;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "llm-rate-limiter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Guarded by this
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+    private double requestsPerMinute;
+    private double tokensPerMinute;
+    private double availableRequests;
+    private double availableTokens;
+    private long lastRefill = System.nanoTime();
+    private long pausedUntil = System.nanoTime();
+    private double concurrencyLimit;
+    // When the limit was last decreased; responses to calls granted before that don't decrease it again
+    private long lastDecreaseAt = System.nanoTime();
+    private int inFlight;
+    private ScheduledFuture<?> scheduledDrain;
+
+    public LlmRateLimiter(
+            @Value("${llm.rate-limit.requests-per-minute:500}") int requestsPerMinute,
+            @Value("${llm.rate-limit.tokens-per-minute:200000}") int tokensPerMinute,
+            @Value("${llm.rate-limit.initial-concurrency:8}") int initialConcurrency,
+            @Value("${llm.rate-limit.min-concurrency:1}") int minConcurrency,
+            @Value("${llm.rate-limit.max-concurrency:32}") int maxConcurrency,
+            @Value("${llm.rate-limit.latency-threshold:PT90S}") Duration latencyThreshold,
+            @Value("${llm.rate-limit.chars-per-token:4}") int charsPerToken,
+            @Value("${llm.rate-limit.expected-output-tokens:1500}") int expectedOutputTokens,
+            MeterRegistry meterRegistry) {
+        this.requestsPerMinute = requestsPerMinute;
+        this.tokensPerMinute = tokensPerMinute;
+        this.availableRequests = requestsPerMinute;
+        this.availableTokens = tokensPerMinute;
+        this.concurrencyLimit = initialConcurrency;
+        this.minConcurrency = minConcurrency;
+        this.maxConcurrency = maxConcurrency;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.charsPerToken = charsPerToken;
+        this.expectedOutputTokens = expectedOutputTokens;
+        this.throttled = meterRegistry.counter("llm.rate-limit.throttled");
+        meterRegistry.gauge("llm.rate-limit.concurrency-limit", this, limiter -> limiter.snapshot(State.LIMIT));
+        meterRegistry.gauge("llm.rate-limit.in-flight", this, limiter -> limiter.snapshot(State.IN_FLIGHT));
+        meterRegistry.gauge("llm.rate-limit.waiting", this, limiter -> limiter.snapshot(State.WAITING));
+    }
+
+    // Rough prompt size plus the room the answer usually takes; the provider's headers correct the budget afterwards
+    public int estimateTokens(String prompt) {
+        return estimateTokens(prompt, 0);
+    }
+
+    // Like estimateTokens(prompt), for a call whose answer can take outputTokens (e.g. a batch); 0 for the usual size
+    public int estimateTokens(String prompt, int outputTokens) {
+        return prompt.length() / charsPerToken + (outputTokens > 0 ? outputTokens : expectedOutputTokens);
+    }
+
+    /**
+     * Completes once the call may be sent. The returned permit must be released with the response
+     * (or null if the exchange failed); cancelling the future gives up the place in the queue.
+     */
+    public CompletableFuture<Permit> acquire(int estimatedTokens) {
+        return acquire(estimatedTokens, 0);
+    }
+
+    // outputTokens as for estimateTokens: the latency threshold grows with it beyond the usual size
+    public CompletableFuture<Permit> acquire(int estimatedTokens, int outputTokens) {
+        Waiter waiter = new Waiter(estimatedTokens, outputTokens);
+        synchronized (this) {
+            waiters.add(waiter);
+        }
+        drain();
+        return waiter.future;
+    }
+
+    private void drain() {
+        long now = System.nanoTime();
+        List<Granted> granted = new ArrayList<>();
+        synchronized (this) {
+            refill(now);
+            while (!waiters.isEmpty()) {
+                Waiter head = waiters.peek();
+                if (head.future.isDone()) {
+                    waiters.poll(); // Cancelled while waiting
+                    continue;
+                }
+                // A call bigger than the whole budget would never fit, so it only waits for a full bucket
+                double tokens = Math.min(head.tokens, tokensPerMinute);
+                long waitNanos = Math.max(pausedUntil - now, Math.max(
+                        nanosUntil(availableRequests, 1, requestsPerMinute),
+                        nanosUntil(availableTokens, tokens, tokensPerMinute)));
+                if (waitNanos > 0) {
+                    scheduleDrain(waitNanos);
+                    break;
+                }
+                if (inFlight >= Math.floor(concurrencyLimit)) {
+                    break; // A release drains again
+                }
+                waiters.poll();
+                availableRequests -= 1;
+                availableTokens -= tokens;
+                inFlight++;
+                granted.add(new Granted(head, tokens));
+            }
+        }
+        // Complete outside the lock: completion runs the caller's continuation, which sends the request
+        boolean returned = false;
+        for (Granted grant : granted) {
+            if (!grant.waiter.future.complete(new Permit(now, grant.waiter.outputTokens))) {
+                synchronized (this) {
+                    inFlight--; // Cancelled concurrently; give the capacity back
+                    availableRequests += 1;
+                    availableTokens += grant.tokens;
+                }
+                returned = true;
+            }
+        }
+        if (returned) {
+            drain();
+        }
+    }
+
+    private void refill(long now) {
+        double minutes = (now - lastRefill) / 60_000_000_000.0;
+        availableRequests = Math.min(requestsPerMinute, availableRequests + minutes * requestsPerMinute);
+        availableTokens = Math.min(tokensPerMinute, availableTokens + minutes * tokensPerMinute);
+        lastRefill = now;
+    }
+
+    private static long nanosUntil(double available, double needed, double perMinute) {
+        if (available >= needed) {
+            return 0;
+        }
+        return (long) Math.ceil((needed - available) / perMinute * 60_000_000_000.0);
+    }
+
+    private void scheduleDrain(long delayNanos) {
+        if (scheduledDrain != null && !scheduledDrain.isDone() && scheduledDrain.getDelay(TimeUnit.NANOSECONDS) <= delayNanos) {
+            return;
+        }
+        if (scheduledDrain != null) {
+            scheduledDrain.cancel(false);
+        }
+        scheduledDrain = scheduler.schedule(this::drain, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void onResponse(long startedAt, int outputTokens, HttpResponse<?> response) {
+        long now = System.nanoTime();
+        synchronized (this) {
+            inFlight--;
+            if (response != null) {
+                followHeaders(response, now);
+                if (response.statusCode() == 429) {
+                    throttled.increment();
+                    // Multiplicative decrease, once per congestion window, and everyone waits out the provider's back-off
+                    decrease(startedAt, now, 0.5);
+                    Duration retryAfter = retryAfter(response).orElse(Duration.ofSeconds(2));
+                    pausedUntil = Math.max(pausedUntil, now + retryAfter.toNanos());
+                } else if (response.statusCode() < 400) {
+                    if (now - startedAt > latencyThresholdNanos(outputTokens)) {
+                        decrease(startedAt, now, 0.9);
+                    } else {
+                        // Additive increase: about one more slot per round of successful calls
+                        concurrencyLimit = Math.min(maxConcurrency, concurrencyLimit + 1 / concurrencyLimit);
+                    }
+                }
+            }
+        }
+        drain();
+    }
+
+    // The calls in flight when congestion starts all report it; only the first of them shrinks the limit
+    private void decrease(long startedAt, long now, double factor) {
+        if (startedAt - lastDecreaseAt >= 0) {
+            concurrencyLimit = Math.max(minConcurrency, concurrencyLimit * factor);
+            lastDecreaseAt = now;
+        }
+    }
+
+    // Completion time grows with the output, so the threshold is per expected-output-tokens, never below the configured one
+    private long latencyThresholdNanos(int outputTokens) {
+        return (long) (latencyThresholdNanos * Math.max(1.0, (double) outputTokens / expectedOutputTokens));
+    }
+
+    // The provider's view of the budgets wins over the local estimate
+    private void followHeaders(HttpResponse<?> response, long now) {
+        header(response, "x-ratelimit-limit-requests").ifPresent(limit -> requestsPerMinute = limit);
+        header(response, "x-ratelimit-limit-tokens").ifPresent(limit -> tokensPerMinute = limit);
+        header(response, "x-ratelimit-remaining-requests").ifPresent(remaining -> {
+            availableRequests = Math.min(availableRequests, remaining);
+            if (remaining < 1) {
+                resetAfter(response, "x-ratelimit-reset-requests", now);
+            }
+        });
+        header(response, "x-ratelimit-remaining-tokens").ifPresent(remaining -> {
+            availableTokens = Math.min(availableTokens, remaining);
+            if (remaining < 1) {
+                resetAfter(response, "x-ratelimit-reset-tokens", now);
+            }
+        });
+    }
+
+    private void resetAfter(HttpResponse<?> response, String headerName, long now) {
+        response.headers().firstValue(headerName)
+                .flatMap(LlmRateLimiter::parseDuration)
+                .ifPresent(reset -> pausedUntil = Math.max(pausedUntil, now + reset.toNanos()));
+    }
+
+    static Optional<Duration> retryAfter(HttpResponse<?> response) {
+        Optional<Duration> millis = response.headers().firstValue("retry-after-ms")
+                .flatMap(value -> parseNumber(value).map(ms -> Duration.ofMillis(ms.longValue())));
+        if (millis.isPresent()) {
+            return millis;
+        }
+        return response.headers().firstValue("retry-after")
+                .flatMap(value -> parseNumber(value).map(seconds -> Duration.ofMillis((long) (seconds * 1000))));
+    }
+
+    private static Optional<Double> header(HttpResponse<?> response, String name) {
+        return response.headers().firstValue(name).flatMap(LlmRateLimiter::parseNumber);
+    }
+
+    private static Optional<Double> parseNumber(String value) {
+        try {
+            return Optional.of(Double.parseDouble(value.trim()));
+        } catch (NumberFormatException e) {
+            return Optional.empty(); // e.g. an HTTP date in Retry-After
+        }
+    }
+
+    // Reset headers look like "1s", "6m0s" or "120ms"
+    static Optional<Duration> parseDuration(String value) {
+        Matcher matcher = DURATION_PART.matcher(value.trim());
+        double millis = 0;
+        boolean matched = false;
+        while (matcher.find()) {
+            double amount = Double.parseDouble(matcher.group(1));
+            millis += switch (matcher.group(2)) {
+                case "h" -> amount * 3_600_000;
+                case "m" -> amount * 60_000;
+                case "s" -> amount * 1_000;
+                default -> amount;
+            };
+            matched = true;
+        }
+        return matched ? Optional.of(Duration.ofMillis((long) Math.ceil(millis))) : Optional.empty();
+    }
+
+    private enum State { LIMIT, IN_FLIGHT, WAITING }
+
+    private synchronized double snapshot(State state) {
+        return switch (state) {
+            case LIMIT -> concurrencyLimit;
+            case IN_FLIGHT -> inFlight;
+            case WAITING -> waiters.size();
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private record Granted(Waiter waiter, double tokens) {
+    }
+
+    private static final class Waiter {
+        private final int tokens;
+        private final int outputTokens;
+        private final CompletableFuture<Permit> future = new CompletableFuture<>();
+
+        private Waiter(int tokens, int outputTokens) {
+            this.tokens = tokens;
+            this.outputTokens = outputTokens;
+        }
+    }
+
+    /** Held while a call is in flight; release it exactly once with the call's response. */
+    public final class Permit {
+        private final long startedAt;
+        private final int outputTokens;
+        private boolean released;
+
+        private Permit(long startedAt, int outputTokens) {
+            this.startedAt = startedAt;
+            this.outputTokens = outputTokens;
+        }
+
+        // response is null when the exchange failed or was cancelled
+        public void release(HttpResponse<?> response) {
+            synchronized (this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+            }
+            onResponse(startedAt, outputTokens, response);
+        }
+    }
+}
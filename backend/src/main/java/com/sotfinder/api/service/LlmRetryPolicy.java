@@ -0,0 +1,190 @@
+package com.sotfinder.api.service;
+
+import com.sotfinder.api.exception.LlmCallException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Retries failed LLM calls with exponential backoff and full jitter, guarded by the
+ * {@link LlmCircuitBreaker}. Only failures that another attempt can fix are retried (timeouts,
+ * connection errors, 429s, 5xx and unusable completions); chat completions have no side effects,
+ * so sending the same request again is safe. Retries are paid from a shared budget that every
+ * first attempt tops up by {@code budget-ratio}, so during an outage retries add at most that
+ * fraction on top of the normal traffic instead of multiplying it.
+ */
+@Component
+public class LlmRetryPolicy {
+
+    private final LlmCircuitBreaker circuitBreaker;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final double budgetRatio;
+    private final double budgetMax;
+    private final Counter retried;
+    private final Counter exhausted;
+    private final Counter budgetExhausted;
+
+    // Guarded by this
+    private double budget;
+
+    public LlmRetryPolicy(
+            LlmCircuitBreaker circuitBreaker,
+            @Value("${llm.retry.max-attempts:4}") int maxAttempts,
+            @Value("${llm.retry.initial-backoff:PT2S}") Duration initialBackoff,
+            @Value("${llm.retry.max-backoff:PT1M}") Duration maxBackoff,
+            @Value("${llm.retry.budget-ratio:0.2}") double budgetRatio,
+            @Value("${llm.retry.budget-capacity:10}") int budgetCapacity,
+            MeterRegistry meterRegistry) {
+        this.circuitBreaker = circuitBreaker;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoff.toMillis();
+        this.maxBackoffMillis = maxBackoff.toMillis();
+        this.budgetRatio = budgetRatio;
+        // Start full so a quiet service can still retry its first few failures
+        this.budgetMax = Math.max(budgetCapacity, 1);
+        this.budget = budgetMax;
+        this.retried = meterRegistry.counter("llm.retry.calls", "outcome", "retried");
+        this.exhausted = meterRegistry.counter("llm.retry.calls", "outcome", "attempts_exhausted");
+        this.budgetExhausted = meterRegistry.counter("llm.retry.calls", "outcome", "budget_exhausted");
+        meterRegistry.gauge("llm.retry.budget", this, LlmRetryPolicy::getBudget);
+    }
+
+    /**
+     * Runs {@code call} until it succeeds, fails for good, or the attempts or retry budget run out;
+     * the last failure is the one reported. Cancelling the returned future cancels the attempt in
+     * flight and any pending retry.
+     */
+    public <T> CompletableFuture<T> execute(Supplier<CompletableFuture<T>> call) {
+        return execute(call, () -> true);
+    }
+
+    /** Like {@link #execute(Supplier)}, but a failure is only retried while {@code retryAllowed} says so. */
+    public <T> CompletableFuture<T> execute(Supplier<CompletableFuture<T>> call, BooleanSupplier retryAllowed) {
+        deposit();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<?>> current = new AtomicReference<>();
+        attempt(call, retryAllowed, 1, result, current);
+        result.whenComplete((value, error) -> {
+            CompletableFuture<?> inFlight = current.get();
+            if (result.isCancelled() && inFlight != null) {
+                inFlight.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private <T> void attempt(Supplier<CompletableFuture<T>> call, BooleanSupplier retryAllowed, int attempt, CompletableFuture<T> result,
+                             AtomicReference<CompletableFuture<?>> current) {
+        if (result.isDone()) {
+            return;
+        }
+        if (!circuitBreaker.tryAcquire()) {
+            result.completeExceptionally(new LlmCallException(LlmCallException.Kind.CIRCUIT_OPEN,
+                    "LLM provider is unavailable (circuit breaker open)"));
+            return;
+        }
+        CompletableFuture<T> started;
+        try {
+            started = call.get();
+        } catch (RuntimeException e) {
+            started = CompletableFuture.failedFuture(e);
+        }
+        current.set(started);
+        if (result.isDone()) {
+            started.cancel(true);
+        }
+        started.whenComplete((value, error) -> {
+            if (error == null) {
+                circuitBreaker.onSuccess();
+                result.complete(value);
+                return;
+            }
+            Throwable cause = unwrap(error);
+            LlmCallException.Kind kind = classify(cause);
+            if (kind == LlmCallException.Kind.TRANSIENT) {
+                circuitBreaker.onFailure();
+            } else if (kind == null) {
+                circuitBreaker.onIgnored();
+            } else {
+                circuitBreaker.onSuccess(); // The provider answered; the request or its answer was the problem
+            }
+
+            boolean retryable = (kind == LlmCallException.Kind.TRANSIENT || kind == LlmCallException.Kind.MALFORMED)
+                    && retryAllowed.getAsBoolean();
+            if (!retryable || result.isDone()) {
+                result.completeExceptionally(cause);
+            } else if (attempt >= maxAttempts) {
+                exhausted.increment();
+                result.completeExceptionally(cause);
+            } else if (!withdraw()) {
+                budgetExhausted.increment();
+                result.completeExceptionally(cause);
+            } else {
+                retried.increment();
+                long delay = backoffMillis(attempt);
+                System.err.println("LlmRetryPolicy: Attempt " + attempt + " failed (" + cause.getMessage() + "), retrying in " + delay + " ms.");
+                CompletableFuture<Void> pause = CompletableFuture.runAsync(() -> { },
+                        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS));
+                current.set(pause);
+                pause.thenRun(() -> attempt(call, retryAllowed, attempt + 1, result, current));
+            }
+        });
+    }
+
+    // Full jitter: uniformly random up to the exponential ceiling, so retries of failures that happened together spread out
+    private long backoffMillis(int attempt) {
+        long ceiling = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    // Returns null for failures that say nothing about the call (cancellation)
+    private static LlmCallException.Kind classify(Throwable cause) {
+        if (cause instanceof CancellationException) {
+            return null;
+        }
+        if (cause instanceof LlmCallException callException) {
+            return callException.getKind();
+        }
+        if (cause instanceof HttpTimeoutException || cause instanceof IOException) {
+            return LlmCallException.Kind.TRANSIENT;
+        }
+        return LlmCallException.Kind.REJECTED;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private synchronized void deposit() {
+        budget = Math.min(budgetMax, budget + budgetRatio);
+    }
+
+    private synchronized boolean withdraw() {
+        if (budget < 1) {
+            return false;
+        }
+        budget -= 1;
+        return true;
+    }
+
+    public synchronized double getBudget() {
+        return budget;
+    }
+}
@@ -0,0 +1,215 @@
+package com.sotfinder.api.service;
+
+import com.sotfinder.api.exception.LlmCallException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token usage of the LLM calls, from the {@code usage} block of every completion, per language
+ * and prompt type since startup and per load run. While a run is active, its languages are held
+ * to token budgets: once a language has used {@code language-token-budget} its further calls are
+ * refused, so that language fails and keeps its previous curriculum while the others go on; once
+ * the whole run has used {@code run-token-budget} every further call of the run is refused.
+ * Calls that were already admitted finish, so a budget can be overshot by the calls in flight.
+ * Publishes {@code llm.usage.tokens} and {@code llm.usage.calls}.
+ */
+@Component
+public class LlmUsageTracker {
+
+    /** Who a call is for: the language and the prompt it sends (e.g. "curriculum"). */
+    public record Key(String language, String prompt) {
+    }
+
+    public record UsageTotals(String language, String prompt, long calls, long cachedCalls, long promptTokens,
+                              long completionTokens, long totalTokens, double estimatedCost) {
+    }
+
+    public record RunReport(Instant startedAt, Instant finishedAt, long tokenBudget, long totalTokens, boolean halted,
+                            List<String> overBudgetLanguages, List<UsageTotals> usage) {
+    }
+
+    public record UsageReport(List<UsageTotals> sinceStartup, RunReport activeRun, RunReport lastRun) {
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final long runTokenBudget;
+    private final long languageTokenBudget;
+    private final double promptTokenPrice;
+    private final double completionTokenPrice;
+    private final Map<Key, Totals> totals = new ConcurrentHashMap<>();
+    private volatile Run activeRun;
+    private volatile Run lastRun;
+
+    public LlmUsageTracker(
+            MeterRegistry meterRegistry,
+            @Value("${llm.usage.run-token-budget:0}") long runTokenBudget,
+            @Value("${llm.usage.language-token-budget:0}") long languageTokenBudget,
+            @Value("${llm.usage.prompt-token-price:0}") double promptTokenPrice,
+            @Value("${llm.usage.completion-token-price:0}") double completionTokenPrice) {
+        this.meterRegistry = meterRegistry;
+        this.runTokenBudget = runTokenBudget;
+        this.languageTokenBudget = languageTokenBudget;
+        // Prices are per million tokens
+        this.promptTokenPrice = promptTokenPrice / 1_000_000;
+        this.completionTokenPrice = completionTokenPrice / 1_000_000;
+    }
+
+    /** Starts accounting a load run over {@code languages}; calls for them count towards its budgets until {@link #finishRun}. */
+    public Run startRun(Set<String> languages) {
+        Run run = new Run(Set.copyOf(languages));
+        activeRun = run;
+        return run;
+    }
+
+    public void finishRun(Run run) {
+        run.finishedAt = Instant.now();
+        if (activeRun == run) {
+            activeRun = null;
+        }
+        lastRun = run;
+        RunReport report = run.report();
+        System.out.println("LlmUsageTracker: Run used " + report.totalTokens() + " tokens"
+                + (report.halted() ? " (halted at the run budget)" : "")
+                + (report.overBudgetLanguages().isEmpty() ? "" : ", over budget: " + report.overBudgetLanguages()) + ".");
+    }
+
+    /** Throws when the active run, or {@code key}'s language within it, has used up its budget. */
+    public void checkBudget(Key key) {
+        Run run = activeRun;
+        if (run == null || !run.languages.contains(key.language())) {
+            return;
+        }
+        if (runTokenBudget > 0 && run.tokens.sum() >= runTokenBudget) {
+            if (run.halted.compareAndSet(false, true)) {
+                System.err.println("LlmUsageTracker: Run token budget of " + runTokenBudget + " used up, refusing further LLM calls.");
+            }
+            throw new LlmCallException(LlmCallException.Kind.BUDGET_EXHAUSTED, "Token budget of the load run is used up");
+        }
+        long languageTokens = run.tokensByLanguage.getOrDefault(key.language(), new LongAdder()).sum();
+        if (languageTokenBudget > 0 && languageTokens >= languageTokenBudget) {
+            if (run.overBudget.add(key.language())) {
+                System.err.println("LlmUsageTracker: Token budget of " + languageTokenBudget + " used up for " + key.language()
+                        + ", refusing its further LLM calls.");
+            }
+            throw new LlmCallException(LlmCallException.Kind.BUDGET_EXHAUSTED, "Token budget for " + key.language() + " is used up");
+        }
+    }
+
+    public void recordUsage(Key key, OpenAIResponse.Usage usage) {
+        if (usage == null) {
+            return;
+        }
+        totals.computeIfAbsent(key, this::registerTotals).add(usage);
+
+        Run run = activeRun;
+        if (run != null && run.languages.contains(key.language())) {
+            run.totals.computeIfAbsent(key, ignored -> new Totals(null)).add(usage);
+            long tokens = usage.prompt_tokens() + (long) usage.completion_tokens();
+            run.tokens.add(tokens);
+            run.tokensByLanguage.computeIfAbsent(key.language(), ignored -> new LongAdder()).add(tokens);
+        }
+    }
+
+    // A completion served from the cache costs nothing, but shows how much the cache saves
+    public void recordCacheHit(Key key) {
+        totals.computeIfAbsent(key, this::registerTotals).cacheHit();
+        Run run = activeRun;
+        if (run != null && run.languages.contains(key.language())) {
+            run.totals.computeIfAbsent(key, ignored -> new Totals(null)).cacheHit();
+        }
+    }
+
+    public UsageReport report() {
+        Run active = activeRun;
+        Run last = lastRun;
+        return new UsageReport(usageTotals(totals), active != null ? active.report() : null, last != null ? last.report() : null);
+    }
+
+    private Totals registerTotals(Key key) {
+        return new Totals(new Counter[] {
+                meterRegistry.counter("llm.usage.tokens", "language", key.language(), "prompt", key.prompt(), "type", "prompt"),
+                meterRegistry.counter("llm.usage.tokens", "language", key.language(), "prompt", key.prompt(), "type", "completion"),
+                meterRegistry.counter("llm.usage.calls", "language", key.language(), "prompt", key.prompt(), "outcome", "called"),
+                meterRegistry.counter("llm.usage.calls", "language", key.language(), "prompt", key.prompt(), "outcome", "cached")
+        });
+    }
+
+    private List<UsageTotals> usageTotals(Map<Key, Totals> byKey) {
+        return byKey.entrySet().stream()
+                .map(entry -> {
+                    Totals keyTotals = entry.getValue();
+                    long promptTokens = keyTotals.promptTokens.sum();
+                    long completionTokens = keyTotals.completionTokens.sum();
+                    return new UsageTotals(entry.getKey().language(), entry.getKey().prompt(), keyTotals.calls.sum(),
+                            keyTotals.cachedCalls.sum(), promptTokens, completionTokens, promptTokens + completionTokens,
+                            promptTokens * promptTokenPrice + completionTokens * completionTokenPrice);
+                })
+                .sorted(Comparator.comparingLong(UsageTotals::totalTokens).reversed())
+                .toList();
+    }
+
+    private static final class Totals {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder cachedCalls = new LongAdder();
+        private final LongAdder promptTokens = new LongAdder();
+        private final LongAdder completionTokens = new LongAdder();
+        // Prompt tokens, completion tokens, calls, cached calls; null for the totals of a run
+        private final Counter[] counters;
+
+        private Totals(Counter[] counters) {
+            this.counters = counters;
+        }
+
+        private void add(OpenAIResponse.Usage usage) {
+            calls.increment();
+            promptTokens.add(usage.prompt_tokens());
+            completionTokens.add(usage.completion_tokens());
+            if (counters != null) {
+                counters[0].increment(usage.prompt_tokens());
+                counters[1].increment(usage.completion_tokens());
+                counters[2].increment();
+            }
+        }
+
+        private void cacheHit() {
+            cachedCalls.increment();
+            if (counters != null) {
+                counters[3].increment();
+            }
+        }
+    }
+
+    /** One load run, from {@link #startRun} to {@link #finishRun}. */
+    public final class Run {
+        private final Set<String> languages;
+        private final Instant startedAt = Instant.now();
+        private volatile Instant finishedAt;
+        private final Map<Key, Totals> totals = new ConcurrentHashMap<>();
+        private final Map<String, LongAdder> tokensByLanguage = new ConcurrentHashMap<>();
+        private final LongAdder tokens = new LongAdder();
+        private final AtomicBoolean halted = new AtomicBoolean();
+        private final Set<String> overBudget = ConcurrentHashMap.newKeySet();
+
+        private Run(Set<String> languages) {
+            this.languages = languages;
+        }
+
+        private RunReport report() {
+            return new RunReport(startedAt, finishedAt, runTokenBudget, tokens.sum(), halted.get(),
+                    overBudget.stream().sorted().toList(), usageTotals(totals));
+        }
+    }
+}
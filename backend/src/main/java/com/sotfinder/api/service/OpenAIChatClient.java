@@ -0,0 +1,326 @@
+package com.sotfinder.api.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sotfinder.api.exception.LlmCallException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Non-blocking client for the OpenAI chat-completions endpoint shared by the LLM-backed services.
+ * No thread is held while a completion is in flight, and concurrent calls share the multiplexed
+ * connections of the shared {@link HttpClient}. Every call goes through the
+ * {@link LlmRateLimiter}, and calls answered with 429 are retried once the limiter lets them through.
+ * Other transient failures and unusable completions are retried by the {@link LlmRetryPolicy}.
+ */
+@Service
+public class OpenAIChatClient {
+
+    private final HttpClient httpClient;
+    private final URI chatCompletionsUri;
+    private final ObjectMapper objectMapper;
+    private final LlmCompletionCache completionCache;
+    private final LlmRateLimiter rateLimiter;
+    private final LlmRetryPolicy retryPolicy;
+    private final LlmUsageTracker usageTracker;
+    private final int maxThrottledRetries;
+
+    @Value("${LLM_API_KEY}")
+    private String llmApiKey;
+    @Value("${LLM_MODEL}")
+    private String llmModel;
+
+    public OpenAIChatClient(HttpClient httpClient, ObjectMapper objectMapper, LlmCompletionCache completionCache, LlmRateLimiter rateLimiter,
+                            LlmRetryPolicy retryPolicy, LlmUsageTracker usageTracker,
+                            @Value("${llm.rate-limit.max-throttled-retries:6}") int maxThrottledRetries,
+                            @Value("${llm.chat-completions-url:https://api.openai.com/v1/chat/completions}") URI chatCompletionsUri) {
+        this.httpClient = httpClient;
+        this.chatCompletionsUri = chatCompletionsUri;
+        this.objectMapper = objectMapper;
+        this.completionCache = completionCache;
+        this.rateLimiter = rateLimiter;
+        this.retryPolicy = retryPolicy;
+        this.usageTracker = usageTracker;
+        this.maxThrottledRetries = maxThrottledRetries;
+    }
+
+    /**
+     * Sends {@code prompt} as a single user message and maps the content of the first choice with
+     * {@code contentParser}. Completions are served from the {@link LlmCompletionCache} when the
+     * same prompt was answered before; a parser returning null or throwing marks the content as
+     * unusable, so it is never cached. The request is aborted when {@code timeout} elapses or when
+     * the returned future is cancelled. Token usage is accounted to {@code usageKey}, and the call
+     * is refused while its token budget is used up (see {@link LlmUsageTracker}).
+     */
+    public <T> CompletableFuture<T> completeAsync(LlmUsageTracker.Key usageKey, String prompt, Duration timeout,
+                                                  Function<String, T> contentParser) {
+        return completeAsync(usageKey, prompt, timeout, null, contentParser);
+    }
+
+    /**
+     * Like {@link #completeAsync(LlmUsageTracker.Key, String, Duration, Function)}, but asks for a
+     * completion matching {@code responseFormat} (structured output) unless it is null.
+     */
+    public <T> CompletableFuture<T> completeAsync(LlmUsageTracker.Key usageKey, String prompt, Duration timeout,
+                                                  OpenAIRequest.ResponseFormat responseFormat, Function<String, T> contentParser) {
+        return completeAsync(usageKey, prompt, timeout, responseFormat, 0, contentParser);
+    }
+
+    /**
+     * Like {@link #completeAsync(LlmUsageTracker.Key, String, Duration, OpenAIRequest.ResponseFormat, Function)},
+     * for a call whose completion can take up to {@code outputTokens} (e.g. a batch), so the rate
+     * limiter reserves that much of the token budget; 0 means the usual completion size.
+     */
+    public <T> CompletableFuture<T> completeAsync(LlmUsageTracker.Key usageKey, String prompt, Duration timeout,
+                                                  OpenAIRequest.ResponseFormat responseFormat, int outputTokens,
+                                                  Function<String, T> contentParser) {
+        String cacheKey = cacheKeyFor(prompt, responseFormat);
+        AtomicReference<CompletableFuture<?>> exchange = new AtomicReference<>();
+
+        CompletableFuture<T> result = completionCache.lookup(cacheKey)
+                .thenCompose(cached -> {
+                    if (cached.isPresent()) {
+                        try {
+                            T parsed = contentParser.apply(cached.get());
+                            if (parsed != null) {
+                                usageTracker.recordCacheHit(usageKey);
+                                return CompletableFuture.completedFuture(parsed);
+                            }
+                        } catch (RuntimeException e) {
+                            // Fall through and ask the LLM again
+                        }
+                        completionCache.evict(cacheKey);
+                    }
+                    try {
+                        usageTracker.checkBudget(usageKey);
+                    } catch (LlmCallException e) {
+                        return CompletableFuture.failedFuture(e);
+                    }
+                    CompletableFuture<T> call = retryPolicy.execute(() -> {
+                        CompletableFuture<String> content = send(prompt, timeout, responseFormat, outputTokens, false,
+                                HttpResponse.BodyHandlers.ofByteArray(), response -> extractContent(usageKey, response));
+                        return forwardCancellation(content, content.thenApply(completion -> parseAndStore(cacheKey, completion, contentParser)));
+                    });
+                    exchange.set(call);
+                    return call;
+                });
+
+        // Cancelling a dependent stage does not reach the exchange, so forward it explicitly
+        result.whenComplete((value, error) -> {
+            CompletableFuture<?> inFlight = exchange.get();
+            if (result.isCancelled() && inFlight != null) {
+                inFlight.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Streams the completion of {@code prompt}, handing each content delta to {@code onDelta} as it
+     * arrives, and completes with the whole content mapped by {@code contentParser}. The cache is
+     * not consulted, since the point is to see the answer being written, but a usable result is
+     * stored. A failed call is only retried while no delta has been handed out yet.
+     */
+    public <T> CompletableFuture<T> streamAsync(LlmUsageTracker.Key usageKey, String prompt, Duration timeout,
+                                                OpenAIRequest.ResponseFormat responseFormat, Consumer<String> onDelta,
+                                                Function<String, T> contentParser) {
+        try {
+            usageTracker.checkBudget(usageKey);
+        } catch (LlmCallException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        String cacheKey = cacheKeyFor(prompt, responseFormat);
+        AtomicBoolean started = new AtomicBoolean();
+        Consumer<String> trackingDelta = delta -> {
+            started.set(true);
+            onDelta.accept(delta);
+        };
+        HttpResponse.BodyHandler<ChatCompletionStreamSubscriber> bodyHandler = responseInfo -> HttpResponse.BodySubscribers.fromLineSubscriber(
+                new ChatCompletionStreamSubscriber(objectMapper, responseInfo.statusCode() == 200 ? trackingDelta : null),
+                subscriber -> subscriber, StandardCharsets.UTF_8, null);
+        return retryPolicy.execute(() -> {
+            CompletableFuture<String> content = send(prompt, timeout, responseFormat, 0, true, bodyHandler,
+                    response -> extractStreamedContent(usageKey, response));
+            return forwardCancellation(content, content.thenApply(completion -> parseAndStore(cacheKey, completion, contentParser)));
+        }, () -> !started.get());
+    }
+
+    // The same prompt with and without a response format gets differently shaped answers
+    private String cacheKeyFor(String prompt, OpenAIRequest.ResponseFormat responseFormat) {
+        return completionCache.keyFor(responseFormat == null ? llmModel : llmModel + "/" + responseFormat.name(), prompt);
+    }
+
+    private <T> T parseAndStore(String cacheKey, String completion, Function<String, T> contentParser) {
+        T parsed;
+        try {
+            parsed = contentParser.apply(completion);
+        } catch (RuntimeException e) {
+            throw new LlmCallException(LlmCallException.Kind.MALFORMED, "Unusable LLM completion: " + e.getMessage(), e);
+        }
+        if (parsed != null) {
+            completionCache.store(cacheKey, llmModel, completion);
+        }
+        return parsed;
+    }
+
+    // Cancelling a dependent stage does not reach its source, so forward it explicitly
+    private static <T> CompletableFuture<T> forwardCancellation(CompletableFuture<?> source, CompletableFuture<T> dependent) {
+        dependent.whenComplete((value, error) -> {
+            if (dependent.isCancelled()) {
+                source.cancel(true);
+            }
+        });
+        return dependent;
+    }
+
+    private <B> CompletableFuture<String> send(String prompt, Duration timeout, OpenAIRequest.ResponseFormat responseFormat, int outputTokens,
+                                               boolean stream, HttpResponse.BodyHandler<B> bodyHandler, Function<HttpResponse<B>, String> contentExtractor) {
+        HttpRequest request;
+        try {
+            OpenAIRequest.Message message = new OpenAIRequest.Message("user", prompt);
+            OpenAIRequest openAIRequest = stream
+                    ? new OpenAIRequest(llmModel, List.of(message), Boolean.TRUE, new OpenAIRequest.StreamOptions(true), responseFormat)
+                    : new OpenAIRequest(llmModel, List.of(message), null, null, responseFormat);
+
+            request = HttpRequest.newBuilder()
+                    .uri(chatCompletionsUri)
+                    .timeout(timeout)
+                    .header("Content-Type", "application/json")
+                    .header("Accept", stream ? "text/event-stream" : "application/json")
+                    .header("Authorization", "Bearer " + llmApiKey)
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(openAIRequest)))
+                    .build();
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(new RuntimeException("Failed to build LLM request", e));
+        }
+
+        CompletableFuture<String> content = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<?>> step = new AtomicReference<>();
+        attempt(request, bodyHandler, contentExtractor, rateLimiter.estimateTokens(prompt, outputTokens), outputTokens, 0, content, step);
+        content.whenComplete((value, error) -> {
+            CompletableFuture<?> current = step.get();
+            if (content.isCancelled() && current != null) {
+                current.cancel(true); // Leaves the limiter's queue or aborts the exchange
+            }
+        });
+        return content;
+    }
+
+    // Waits for the rate limiter, sends, and goes back to the limiter when the provider answers 429
+    private <B> void attempt(HttpRequest request, HttpResponse.BodyHandler<B> bodyHandler, Function<HttpResponse<B>, String> contentExtractor,
+                             int estimatedTokens, int outputTokens, int throttledRetries, CompletableFuture<String> content,
+                             AtomicReference<CompletableFuture<?>> step) {
+        CompletableFuture<LlmRateLimiter.Permit> permit = rateLimiter.acquire(estimatedTokens, outputTokens);
+        step.set(permit);
+        if (content.isDone()) {
+            permit.cancel(true);
+            return;
+        }
+        permit.thenAccept(granted -> {
+            CompletableFuture<HttpResponse<B>> exchange;
+            try {
+                exchange = httpClient.sendAsync(request, bodyHandler);
+            } catch (RuntimeException e) {
+                // E.g. a closed client: nothing was sent, so hand the permit back before failing the call
+                granted.release(null);
+                content.completeExceptionally(e);
+                return;
+            }
+            step.set(exchange);
+            if (content.isDone()) {
+                exchange.cancel(true);
+            }
+            exchange.whenComplete((response, error) -> {
+                granted.release(response);
+                if (error != null) {
+                    content.completeExceptionally(error);
+                } else if (response.statusCode() == 429 && throttledRetries < maxThrottledRetries) {
+                    // The limiter has already paused for Retry-After, so the next attempt waits it out
+                    attempt(request, bodyHandler, contentExtractor, estimatedTokens, outputTokens, throttledRetries + 1, content, step);
+                } else {
+                    try {
+                        content.complete(contentExtractor.apply(response));
+                    } catch (RuntimeException e) {
+                        content.completeExceptionally(e);
+                    }
+                }
+            });
+        });
+    }
+
+    public String getModel() {
+        return llmModel;
+    }
+
+    // Reads the envelope straight from the response bytes; only the content itself becomes a String
+    private String extractContent(LlmUsageTracker.Key usageKey, HttpResponse<byte[]> response) {
+        if (response.statusCode() != 200) {
+            checkStatus(response.statusCode(), new String(response.body(), StandardCharsets.UTF_8));
+        }
+        OpenAIResponse openAIResponse;
+        try {
+            openAIResponse = objectMapper.readValue(response.body(), OpenAIResponse.class);
+        } catch (IOException e) {
+            throw new LlmCallException(LlmCallException.Kind.MALFORMED, "Failed to read LLM response", e);
+        }
+        // Counted before the content is checked: an unusable completion costs the same
+        usageTracker.recordUsage(usageKey, openAIResponse.usage());
+        OpenAIResponse.Message message;
+        try {
+            message = openAIResponse.choices().get(0).message();
+        } catch (RuntimeException e) {
+            throw new LlmCallException(LlmCallException.Kind.MALFORMED, "Failed to read LLM response", e);
+        }
+        if (message.content() == null) {
+            throw new LlmCallException(LlmCallException.Kind.MALFORMED, "LLM returned no content"
+                    + (message.refusal() != null ? ", refusal: " + message.refusal() : ""));
+        }
+        return message.content();
+    }
+
+    private String extractStreamedContent(LlmUsageTracker.Key usageKey, HttpResponse<ChatCompletionStreamSubscriber> response) {
+        checkStatus(response.statusCode(), response.body().rawBody());
+        usageTracker.recordUsage(usageKey, response.body().usage());
+        return response.body().content();
+    }
+
+    private static void checkStatus(int status, String body) {
+        if (status != 200) {
+            LlmCallException.Kind kind = status == 408 || status == 429 || status >= 500
+                    ? LlmCallException.Kind.TRANSIENT
+                    : LlmCallException.Kind.REJECTED;
+            throw new LlmCallException(kind, "LLM request failed. Status code: " + status + ", body: " + body);
+        }
+    }
+
+    /**
+     * Waits for {@code future} and rethrows its failure the way the synchronous service methods
+     * always have: as an unchecked exception carrying {@code message}.
+     */
+    static <T> T await(CompletableFuture<T> future, String message) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException(message, e.getCause());
+        }
+    }
+}
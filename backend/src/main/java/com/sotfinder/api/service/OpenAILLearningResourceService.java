@@ -1,101 +1,258 @@
 package com.sotfinder.api.service;
 
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sotfinder.api.language.dto.LearningResourceDTO;
 
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class OpenAILLearningResourceService implements LearningResourceService {
 
-    private final HttpClient httpClient;
+    private static final String PROMPT_LOCATION = "classpath:prompts/llm_learning_resources_generation_prompt.txt";
+    private static final String BATCH_PROMPT_LOCATION = "classpath:prompts/llm_learning_resources_batch_generation_prompt.txt";
+
+    private final OpenAIChatClient chatClient;
     private final ObjectMapper objectMapper;
-    private final ResourceLoader resourceLoader;
+    private final PromptTemplateRegistry promptTemplates;
+    private final StructuredOutputs structuredOutputs;
+
+    @Value("${llm.learning-resources.timeout:PT1M}")
+    private Duration timeout;
+    @Value("${llm.learning-resources.batch.timeout:PT4M}")
+    private Duration batchTimeout;
+    @Value("${llm.learning-resources.batch.max-size:20}")
+    private int maxBatchSize;
+    @Value("${llm.learning-resources.batch.max-output-tokens:12000}")
+    private int maxBatchOutputTokens;
+    @Value("${llm.learning-resources.batch.tokens-per-subtopic:900}")
+    private int tokensPerSubtopic; // Rough size of 5-10 resources in the completion
 
-    @Value("${LLM_API_KEY}")
-    private String llmApiKey;
-    @Value("${LLM_MODEL}")
-    private String llmModel;
+    // Per language: shrinks when its batches come back malformed and grows back one step per well-formed batch
+    private final Map<String, AtomicInteger> batchSizeLimits = new ConcurrentHashMap<>();
 
-    public OpenAILLearningResourceService(ObjectMapper objectMapper, ResourceLoader resourceLoader) {
-        this.httpClient = HttpClient.newHttpClient();
+    public OpenAILLearningResourceService(OpenAIChatClient chatClient, ObjectMapper objectMapper, PromptTemplateRegistry promptTemplates,
+                                          StructuredOutputs structuredOutputs) {
+        this.chatClient = chatClient;
         this.objectMapper = objectMapper;
-        this.resourceLoader = resourceLoader;
-        // llmApiKey and llmModel are now injected by Spring via @Value
+        this.promptTemplates = promptTemplates;
+        this.structuredOutputs = structuredOutputs;
     }
 
     @Override
     public List<LearningResourceDTO> generateLearningResources(String language, String subtopicTitle, JsonNode trustProfileData) {
+        return OpenAIChatClient.await(generateLearningResourcesAsync(language, subtopicTitle, trustProfileData),
+                "Failed to generate learning resources from LLM");
+    }
+
+    @Override
+    public CompletableFuture<List<LearningResourceDTO>> generateLearningResourcesAsync(String language, String subtopicTitle, JsonNode trustProfileData) {
+        String formattedPrompt;
+        try {
+            formattedPrompt = promptTemplates.get(PROMPT_LOCATION).render(Map.of(
+                    "language", language,
+                    "subtopicTitle", String.valueOf(subtopicTitle),
+                    "trustProfileData", trustProfileData.toString()));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new RuntimeException("Failed to generate learning resources from LLM", e));
+        }
+        return chatClient.completeAsync(new LlmUsageTracker.Key(language, "learning-resources"), formattedPrompt, timeout,
+                structuredOutputs.learningResources(), this::parseLearningResources);
+    }
+
+    @Override
+    public CompletableFuture<Map<String, List<LearningResourceDTO>>> generateLearningResourcesBatchAsync(
+            String language, Map<String, String> subtopicTitlesById, JsonNode trustProfileData) {
+        List<Map.Entry<String, String>> subtopics = List.copyOf(subtopicTitlesById.entrySet());
+        int batchSize = getBatchSize(language);
+
+        // Callers normally pass at most getBatchSize(language) subtopics; larger inputs are split up front
+        List<CompletableFuture<Map<String, List<LearningResourceDTO>>>> batches = new ArrayList<>();
+        for (int from = 0; from < subtopics.size(); from += batchSize) {
+            batches.add(generateBatch(language, subtopics.subList(from, Math.min(from + batchSize, subtopics.size())), trustProfileData));
+        }
+        return CompletableFuture.allOf(batches.toArray(CompletableFuture[]::new))
+                .thenApply(v -> {
+                    Map<String, List<LearningResourceDTO>> resourcesById = new LinkedHashMap<>();
+                    batches.forEach(batch -> resourcesById.putAll(batch.join()));
+                    return resourcesById;
+                });
+    }
+
+    @Override
+    public int getBatchSize(String language) {
+        int byOutputBudget = Math.max(1, maxBatchOutputTokens / Math.max(1, tokensPerSubtopic));
+        return Math.max(1, Math.min(Math.min(maxBatchSize, byOutputBudget), batchSizeLimit(language).get()));
+    }
+
+    private AtomicInteger batchSizeLimit(String language) {
+        return batchSizeLimits.computeIfAbsent(language, ignored -> new AtomicInteger(Integer.MAX_VALUE));
+    }
+
+    private CompletableFuture<Map<String, List<LearningResourceDTO>>> generateBatch(
+            String language, List<Map.Entry<String, String>> subtopics, JsonNode trustProfileData) {
+        if (subtopics.size() == 1) {
+            // A batch of one gains nothing from the batch prompt and is the end of the split-and-retry path
+            Map.Entry<String, String> subtopic = subtopics.get(0);
+            return generateLearningResourcesAsync(language, subtopic.getValue(), trustProfileData)
+                    .thenApply(resources -> Map.of(subtopic.getKey(), resources));
+        }
+
+        String formattedPrompt;
         try {
-            String prompt = loadPrompt();
-            String formattedPrompt = prompt
-                    .replace("{language}", language)
-                    .replace("{subtopicTitle}", subtopicTitle)
-                    .replace("{trustProfileData}", trustProfileData.toString());
-
-            OpenAIRequest.Message message = new OpenAIRequest.Message("user", formattedPrompt);
-            OpenAIRequest openAIRequest = new OpenAIRequest(llmModel, List.of(message));
-
-            String requestBody = objectMapper.writeValueAsString(openAIRequest);
-
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create("https://api.openai.com/v1/chat/completions"))
-                    .header("Content-Type", "application/json")
-                    .header("Authorization", "Bearer " + llmApiKey)
-                    .POST(HttpRequest.BodyPublishers.ofString(requestBody))
-                    .build();
-
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-            if (response.statusCode() == 200) {
-                OpenAIResponse openAIResponse = objectMapper.readValue(response.body(), OpenAIResponse.class);
-                String jsonResponse = openAIResponse.choices().get(0).message().content();
-
-                // More robust JSON extraction: find the first '{' and last '}'
-                int firstBrace = jsonResponse.indexOf('['); // Expecting a JSON array
-                int lastBrace = jsonResponse.lastIndexOf(']');
-                
-                if (firstBrace != -1 && lastBrace != -1 && lastBrace > firstBrace) {
-                    jsonResponse = jsonResponse.substring(firstBrace, lastBrace + 1);
-                } else {
-                    // Fallback for markdown code block if direct JSON array extraction fails
-                    if (jsonResponse.startsWith("```json")) {
-                        jsonResponse = jsonResponse.substring(jsonResponse.indexOf("```json") + 7);
-                        if (jsonResponse.endsWith("```")) {
-                            jsonResponse = jsonResponse.substring(0, jsonResponse.lastIndexOf("```"));
+            List<Map<String, String>> subtopicList = subtopics.stream()
+                    .map(subtopic -> Map.of("id", subtopic.getKey(), "title", String.valueOf(subtopic.getValue())))
+                    .toList();
+            formattedPrompt = promptTemplates.get(BATCH_PROMPT_LOCATION).render(Map.of(
+                    "language", language,
+                    "trustProfileData", trustProfileData.toString(),
+                    "subtopics", objectMapper.writeValueAsString(subtopicList)));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new RuntimeException("Failed to generate learning resources from LLM", e));
+        }
+
+        // The limiter reserves the batch's whole output budget rather than the size of a single answer
+        int outputTokens = Math.min(maxBatchOutputTokens, subtopics.size() * tokensPerSubtopic);
+        return chatClient.completeAsync(new LlmUsageTracker.Key(language, "learning-resources-batch"), formattedPrompt, batchTimeout,
+                        structuredOutputs.learningResourcesBatch(), outputTokens, completion -> parseLearningResourcesBatch(completion, subtopics))
+                .thenCompose(parsed -> {
+                    if (parsed == null) {
+                        // Malformed (often truncated) batch: retry both halves with smaller batches.
+                        // Concurrent failures only ever lower the limit, never raise it again.
+                        batchSizeLimit(language).accumulateAndGet(Math.max(1, subtopics.size() / 2), Math::min);
+                        System.err.println("OpenAILLearningResourceService: Malformed batch response for " + subtopics.size()
+                                + " subtopics of " + language + ", splitting and retrying.");
+                        int middle = subtopics.size() / 2;
+                        return generateBatch(language, subtopics.subList(0, middle), trustProfileData)
+                                .thenCombine(generateBatch(language, subtopics.subList(middle, subtopics.size()), trustProfileData),
+                                        (first, second) -> {
+                                            Map<String, List<LearningResourceDTO>> merged = new LinkedHashMap<>(first);
+                                            merged.putAll(second);
+                                            return merged;
+                                        });
+                    }
+                    batchSizeLimit(language).updateAndGet(limit -> limit == Integer.MAX_VALUE ? limit : limit + 1);
+
+                    Map<String, List<LearningResourceDTO>> resourcesById = new LinkedHashMap<>();
+                    List<Map.Entry<String, String>> missing = new ArrayList<>();
+                    for (Map.Entry<String, String> subtopic : subtopics) {
+                        List<LearningResourceDTO> resources = parsed.get(subtopic.getKey());
+                        if (resources != null) {
+                            resourcesById.put(subtopic.getKey(), resources);
+                        } else {
+                            missing.add(subtopic);
                         }
                     }
-                }
-                jsonResponse = jsonResponse.trim();
+                    if (missing.isEmpty()) {
+                        return CompletableFuture.completedFuture(resourcesById);
+                    }
+                    // The model skipped some ids; ask again for just those (always fewer than this batch)
+                    return generateBatch(language, missing, trustProfileData)
+                            .thenApply(retried -> {
+                                resourcesById.putAll(retried);
+                                return resourcesById;
+                            });
+                });
+    }
 
-                // Deserialize into a List of LearningResourceDTO
-                return objectMapper.readValue(jsonResponse, objectMapper.getTypeFactory().constructCollectionType(List.class, LearningResourceDTO.class));
-            } else {
-                throw new RuntimeException("Failed to generate learning resources from LLM. Status code: " + response.statusCode() + ", body: " + response.body());
+    // Returns null, so the completion is neither cached nor used, when it answers none of the requested ids
+    private Map<String, List<LearningResourceDTO>> parseLearningResourcesBatch(String jsonResponse, List<Map.Entry<String, String>> subtopics) {
+        Map<String, List<LearningResourceDTO>> parsed = parseLearningResourcesBatch(jsonResponse);
+        if (parsed == null || subtopics.stream().noneMatch(subtopic -> parsed.containsKey(subtopic.getKey()))) {
+            return null;
+        }
+        return parsed;
+    }
+
+    // Returns null when the completion is not a well-formed id -> resources object
+    private Map<String, List<LearningResourceDTO>> parseLearningResourcesBatch(String jsonResponse) {
+        if (structuredOutputs.isEnabled()) {
+            // A truncated batch keeps its complete subtopics; the missing ids are asked for again below
+            try {
+                StructuredOutputs.ResourceListsById parsed = structuredOutputs.readRepairingTruncation(jsonResponse, StructuredOutputs.ResourceListsById.class);
+                Map<String, List<LearningResourceDTO>> resourcesById = new LinkedHashMap<>();
+                if (parsed.results() != null) {
+                    for (StructuredOutputs.ResourceListsById.Result result : parsed.results()) {
+                        if (result.id() != null && result.resources() != null) {
+                            resourcesById.put(result.id(), result.resources());
+                        }
+                    }
+                }
+                return resourcesById;
+            } catch (IOException e) {
+                return null;
             }
+        }
 
-        } catch (IOException | InterruptedException e) {
-            throw new RuntimeException("Failed to generate learning resources from LLM", e);
+        int firstBrace = jsonResponse.indexOf('{');
+        int lastBrace = jsonResponse.lastIndexOf('}');
+        if (firstBrace == -1 || lastBrace <= firstBrace) {
+            return null;
+        }
+        try {
+            JsonNode root = objectMapper.readTree(jsonResponse.substring(firstBrace, lastBrace + 1));
+            JavaType resourceListType = objectMapper.getTypeFactory().constructCollectionType(List.class, LearningResourceDTO.class);
+            Map<String, List<LearningResourceDTO>> resourcesById = new LinkedHashMap<>();
+            Iterator<Map.Entry<String, JsonNode>> fields = root.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                if (field.getValue().isArray()) {
+                    resourcesById.put(field.getKey(), objectMapper.convertValue(field.getValue(), resourceListType));
+                }
+            }
+            return resourcesById;
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
         }
     }
 
-    private String loadPrompt() throws IOException {
-        Resource resource = resourceLoader.getResource("classpath:prompts/llm_learning_resources_generation_prompt.txt");
-        try (InputStream inputStream = resource.getInputStream()) {
-            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+    private List<LearningResourceDTO> parseLearningResources(String jsonResponse) {
+        if (structuredOutputs.isEnabled()) {
+            try {
+                StructuredOutputs.ResourceList parsed = structuredOutputs.readRepairingTruncation(jsonResponse, StructuredOutputs.ResourceList.class);
+                if (parsed.resources() != null) {
+                    return parsed.resources();
+                }
+            } catch (IOException e) {
+                // Fall back to extracting the JSON array below
+            }
+        }
+
+        // More robust JSON extraction: find the first '{' and last '}'
+        int firstBrace = jsonResponse.indexOf('['); // Expecting a JSON array
+        int lastBrace = jsonResponse.lastIndexOf(']');
+
+        if (firstBrace != -1 && lastBrace != -1 && lastBrace > firstBrace) {
+            jsonResponse = jsonResponse.substring(firstBrace, lastBrace + 1);
+        } else {
+            // Fallback for markdown code block if direct JSON array extraction fails
+            if (jsonResponse.startsWith("```json")) {
+                jsonResponse = jsonResponse.substring(jsonResponse.indexOf("```json") + 7);
+                if (jsonResponse.endsWith("```")) {
+                    jsonResponse = jsonResponse.substring(0, jsonResponse.lastIndexOf("```"));
+                }
+            }
+        }
+        jsonResponse = jsonResponse.trim();
+
+        // Deserialize into a List of LearningResourceDTO
+        try {
+            return objectMapper.readValue(jsonResponse, objectMapper.getTypeFactory().constructCollectionType(List.class, LearningResourceDTO.class));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to generate learning resources from LLM", e);
         }
     }
-}
\ No newline at end of file
+}
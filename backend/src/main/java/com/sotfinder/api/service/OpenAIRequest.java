@@ -1,13 +1,50 @@
 package com.sotfinder.api.service;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
+
 import java.util.List;
 
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public record OpenAIRequest(
         String model,
-        List<Message> messages
+        List<Message> messages,
+        Boolean stream, // Server-sent chunks instead of one body; left out when null
+        @JsonProperty("stream_options") StreamOptions streamOptions, // Left out when null
+        @JsonProperty("response_format") ResponseFormat responseFormat // Left out when null
 ) {
+    public OpenAIRequest(String model, List<Message> messages) {
+        this(model, messages, null, null, null);
+    }
+
+    // include_usage: the stream ends with a chunk carrying the usage of the whole completion
+    public record StreamOptions(
+            @JsonProperty("include_usage") boolean includeUsage
+    ) {}
+
     public record Message(
             String role,
             String content
     ) {}
+
+    // Structured output: the completion is guaranteed to match the schema
+    public record ResponseFormat(
+            String type,
+            @JsonProperty("json_schema") JsonSchema jsonSchema
+    ) {
+        public static ResponseFormat jsonSchema(String name, JsonNode schema) {
+            return new ResponseFormat("json_schema", new JsonSchema(name, true, schema));
+        }
+
+        public String name() {
+            return jsonSchema.name();
+        }
+    }
+
+    public record JsonSchema(
+            String name,
+            boolean strict,
+            JsonNode schema
+    ) {}
 }
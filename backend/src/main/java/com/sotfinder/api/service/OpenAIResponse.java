@@ -18,7 +18,8 @@ public record OpenAIResponse(
 
     public record Message(
             String role,
-            String content
+            String content,
+            String refusal // Set instead of content when the model declines a structured-output request
     ) {}
 
     public record Usage(
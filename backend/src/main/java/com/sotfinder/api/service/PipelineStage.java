@@ -0,0 +1,92 @@
+package com.sotfinder.api.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * One stage of a processing pipeline: a fixed number of workers fed by a bounded queue. When the
+ * queue is full, {@link #submit} blocks the submitting thread, which is the previous stage's worker,
+ * so a slow stage holds back the stages before it instead of letting work pile up.
+ * The returned futures complete on this stage's workers, so chaining the next stage with
+ * {@code thenCompose(next::submit)} hands items over directly. Publishes
+ * {@code curriculum.pipeline.queue.depth}, {@code curriculum.pipeline.items} and
+ * {@code curriculum.pipeline.stage.duration}, tagged with the stage name.
+ */
+public class PipelineStage<I, O> {
+
+    private final String name;
+    private final Function<I, O> task;
+    private final BlockingQueue<Runnable> queue;
+    private final ExecutorService workers;
+    private final Counter succeeded;
+    private final Counter failed;
+    private final Timer duration;
+
+    public PipelineStage(String name, int workerCount, int queueCapacity, Function<I, O> task, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.task = task;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS, queue,
+                runnable -> new Thread(runnable, "pipeline-" + name + "-" + threadNumber.incrementAndGet()),
+                (runnable, executor) -> {
+                    // Backpressure: wait for room in the queue rather than rejecting or running on the caller
+                    try {
+                        executor.getQueue().put(runnable);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException("Interrupted while waiting for the " + name + " stage", e);
+                    }
+                });
+        this.succeeded = meterRegistry.counter("curriculum.pipeline.items", "stage", name, "outcome", "success");
+        this.failed = meterRegistry.counter("curriculum.pipeline.items", "stage", name, "outcome", "failure");
+        this.duration = meterRegistry.timer("curriculum.pipeline.stage.duration", "stage", name);
+        meterRegistry.gauge("curriculum.pipeline.queue.depth", Tags.of("stage", name), queue, BlockingQueue::size);
+    }
+
+    public CompletableFuture<O> submit(I input) {
+        CompletableFuture<O> result = new CompletableFuture<>();
+        try {
+            workers.execute(() -> {
+                long start = System.nanoTime();
+                O output;
+                try {
+                    output = task.apply(input);
+                } catch (Throwable e) {
+                    // Errors too (e.g. a StackOverflowError on a deep curriculum), or the load would wait on this item forever
+                    duration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    failed.increment();
+                    result.completeExceptionally(e);
+                    return;
+                }
+                // Record before completing: completion hands the item to the next stage and may block there
+                duration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                succeeded.increment();
+                result.complete(output);
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+}
@@ -0,0 +1,72 @@
+package com.sotfinder.api.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A prompt compiled once into literal segments and {@code {name}} slots. Rendering writes every
+ * segment and value exactly once into a buffer sized up front, so a large value (such as the
+ * curriculum config) is copied once rather than once per placeholder, and a value that happens to
+ * contain another placeholder is never substituted again. Slots without a value are rendered as
+ * written, like {@code String.replace} left them.
+ */
+public final class PromptTemplate {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{([A-Za-z][A-Za-z0-9_]*)}");
+
+    private final String location;
+    // Alternating parts: even indexes are literals, odd indexes slot names
+    private final String[] parts;
+    private final int literalLength;
+
+    private PromptTemplate(String location, String[] parts, int literalLength) {
+        this.location = location;
+        this.parts = parts;
+        this.literalLength = literalLength;
+    }
+
+    public static PromptTemplate compile(String location, String text) {
+        List<String> parts = new ArrayList<>();
+        int literalLength = 0;
+        int literalStart = 0;
+        Matcher matcher = PLACEHOLDER.matcher(text);
+        while (matcher.find()) {
+            String literal = text.substring(literalStart, matcher.start());
+            parts.add(literal);
+            parts.add(matcher.group(1));
+            literalLength += literal.length();
+            literalStart = matcher.end();
+        }
+        String tail = text.substring(literalStart);
+        parts.add(tail);
+        literalLength += tail.length();
+        return new PromptTemplate(location, parts.toArray(String[]::new), literalLength);
+    }
+
+    public String render(Map<String, String> values) {
+        int length = literalLength;
+        for (int i = 1; i < parts.length; i += 2) {
+            String value = values.get(parts[i]);
+            length += value != null ? value.length() : parts[i].length() + 2;
+        }
+        StringBuilder prompt = new StringBuilder(length);
+        prompt.append(parts[0]);
+        for (int i = 1; i < parts.length; i += 2) {
+            String value = values.get(parts[i]);
+            if (value != null) {
+                prompt.append(value);
+            } else {
+                prompt.append('{').append(parts[i]).append('}');
+            }
+            prompt.append(parts[i + 1]);
+        }
+        return prompt.toString();
+    }
+
+    public String getLocation() {
+        return location;
+    }
+}
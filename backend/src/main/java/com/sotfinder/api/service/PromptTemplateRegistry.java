@@ -0,0 +1,65 @@
+package com.sotfinder.api.service;
+
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Loads each prompt template from its resource location once and keeps the compiled
+ * {@link PromptTemplate} for every later call. {@link #reload()} re-reads all templates, e.g.
+ * after editing a prompt on a running instance with an exploded classpath.
+ */
+@Component
+public class PromptTemplateRegistry {
+
+    private final ResourceLoader resourceLoader;
+    private final ConcurrentHashMap<String, PromptTemplate> templates = new ConcurrentHashMap<>();
+
+    public PromptTemplateRegistry(ResourceLoader resourceLoader) {
+        this.resourceLoader = resourceLoader;
+    }
+
+    public PromptTemplate get(String location) throws IOException {
+        try {
+            return templates.computeIfAbsent(location, key -> {
+                try {
+                    return load(key);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Re-reads every template loaded so far and returns their locations. A template that can no
+     * longer be read keeps its previous version, so a bad edit doesn't break generation.
+     */
+    public List<String> reload() {
+        for (String location : List.copyOf(templates.keySet())) {
+            try {
+                templates.put(location, load(location));
+            } catch (IOException e) {
+                System.err.println("PromptTemplateRegistry: Keeping the previous version of " + location + ": " + e.getMessage());
+            }
+        }
+        System.out.println("PromptTemplateRegistry: Reloaded " + templates.size() + " prompt templates.");
+        return List.copyOf(templates.keySet());
+    }
+
+    private PromptTemplate load(String location) throws IOException {
+        Resource resource = resourceLoader.getResource(location);
+        try (InputStream inputStream = resource.getInputStream()) {
+            return PromptTemplate.compile(location, new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.sotfinder.api.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.io.JsonEOFException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sotfinder.api.language.dto.CurriculumDTO;
+import com.sotfinder.api.language.dto.LearningResourceDTO;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Response formats for the provider's JSON-schema structured-output mode, derived once from the
+ * DTOs, and the matching readers. With structured output the completion is exactly the JSON
+ * document, so it is deserialized as is; only a completion that ends early (the output token
+ * limit) takes the repair path. With {@code llm.structured-output.enabled=false} no response
+ * format is sent and the services fall back to extracting JSON from free text.
+ */
+@Component
+public class StructuredOutputs {
+
+    // Root shapes of the list responses, see JsonSchemas.listOf and JsonSchemas.listsById
+    public record ResourceList(List<LearningResourceDTO> resources) {
+    }
+
+    public record ResourceListsById(List<Result> results) {
+        public record Result(String id, List<LearningResourceDTO> resources) {
+        }
+    }
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final OpenAIRequest.ResponseFormat curriculum;
+    private final OpenAIRequest.ResponseFormat learningResources;
+    private final OpenAIRequest.ResponseFormat learningResourcesBatch;
+
+    public StructuredOutputs(ObjectMapper objectMapper, @Value("${llm.structured-output.enabled:true}") boolean enabled) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        // Strict mode makes every property required; the structure call must not pay for resources enrichment replaces anyway
+        this.curriculum = OpenAIRequest.ResponseFormat.jsonSchema("curriculum", JsonSchemas.of(CurriculumDTO.class, Set.of("learning_resources")));
+        this.learningResources = OpenAIRequest.ResponseFormat.jsonSchema("learning_resources",
+                JsonSchemas.listOf("resources", LearningResourceDTO.class));
+        this.learningResourcesBatch = OpenAIRequest.ResponseFormat.jsonSchema("learning_resources_by_subtopic",
+                JsonSchemas.listsById("resources", LearningResourceDTO.class));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Null while structured output is disabled, which leaves response_format out of the request
+    public OpenAIRequest.ResponseFormat curriculum() {
+        return enabled ? curriculum : null;
+    }
+
+    public OpenAIRequest.ResponseFormat learningResources() {
+        return enabled ? learningResources : null;
+    }
+
+    public OpenAIRequest.ResponseFormat learningResourcesBatch() {
+        return enabled ? learningResourcesBatch : null;
+    }
+
+    /**
+     * Reads a list-shaped document. If it was cut off, the complete elements are kept and the one
+     * being written is dropped; callers ask again for whatever is missing.
+     */
+    public <T> T readRepairingTruncation(String content, Class<T> type) throws IOException {
+        JavaType javaType = objectMapper.constructType(type);
+        try {
+            return objectMapper.readValue(content, javaType);
+        } catch (IOException e) {
+            if (!endedEarly(e, content)) {
+                throw e;
+            }
+            String repaired = JsonRepair.closeAfterLastCompleteElement(content);
+            if (repaired == null) {
+                throw e;
+            }
+            System.err.println("StructuredOutputs: Repaired a truncated " + type.getSimpleName() + " completion ("
+                    + content.length() + " chars, kept " + repaired.length() + ").");
+            return objectMapper.readValue(repaired, javaType);
+        }
+    }
+
+    // Jackson reports the cut-off inside a value as a mapping error caused by the end of input, and a cut
+    // right after a comma as a plain parse error, so an error at the very end of the content counts too
+    private static boolean endedEarly(IOException e, String content) {
+        if (e instanceof JsonEOFException || e.getCause() instanceof JsonEOFException) {
+            return true;
+        }
+        return e instanceof JsonProcessingException processingException && processingException.getLocation() != null
+                && processingException.getLocation().getCharOffset() >= content.length();
+    }
+}
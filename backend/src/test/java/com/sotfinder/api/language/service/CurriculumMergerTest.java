@@ -0,0 +1,206 @@
+package com.sotfinder.api.language.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sotfinder.api.language.dto.CurriculumDTO;
+import com.sotfinder.api.language.dto.LearningLevelDTO;
+import com.sotfinder.api.language.dto.LearningResourceDTO;
+import com.sotfinder.api.language.dto.SourceReferenceDTO;
+import com.sotfinder.api.language.dto.TopicDTO;
+import com.sotfinder.api.language.entity.CurriculumEntity;
+import com.sotfinder.api.language.entity.LearningLevelEntity;
+import com.sotfinder.api.language.entity.TopicEntity;
+
+import jakarta.persistence.EntityManager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class CurriculumMergerTest {
+
+    private final EntityManager entityManager = mock(EntityManager.class);
+    private final CurriculumMerger merger = new CurriculumMerger(new CurriculumMapper(), new ObjectMapper());
+    private CurriculumEntity existing;
+
+    @BeforeEach
+    void mergeTheFirstGeneration() {
+        ReflectionTestUtils.setField(merger, "entityManager", entityManager);
+        existing = new CurriculumEntity();
+        existing.setLanguage("java");
+        merge(curriculum(
+                level("Beginner",
+                        topic("syntax", "Syntax"),
+                        topic("generics", "Generics", topic("wildcards", "Wildcards"), topic("bounds", "Bounds")),
+                        topic("streams", "Streams")),
+                level("Advanced",
+                        topic("concurrency", "Concurrency"))));
+    }
+
+    @Test
+    void unchangedRerunWritesNothing() {
+        CurriculumDTO unchanged = curriculum(
+                level("Beginner",
+                        topic("syntax", "Syntax"),
+                        topic("generics", "Generics", topic("wildcards", "Wildcards"), topic("bounds", "Bounds")),
+                        topic("streams", "Streams")),
+                level("Advanced",
+                        topic("concurrency", "Concurrency")));
+        List<Object> before = graph();
+
+        assertFalse(merger.merge(existing, unchanged, merger.contentHash(unchanged)));
+        // Even when merged (e.g. another model version hashed differently), every row and collection is kept as is
+        assertTrue(merger.merge(existing, unchanged, "rehashed"));
+
+        assertSameElements(before, graph());
+        verify(entityManager, never()).flush();
+    }
+
+    @Test
+    void movedTopicIsReinsertedUnderItsNewLevel() {
+        TopicEntity streams = topic("streams");
+        TopicEntity syntax = topic("syntax");
+
+        merge(curriculum(
+                level("Beginner",
+                        topic("syntax", "Syntax"),
+                        topic("generics", "Generics", topic("wildcards", "Wildcards"), topic("bounds", "Bounds"))),
+                level("Advanced",
+                        topic("concurrency", "Concurrency"),
+                        topic("streams", "Streams"))));
+
+        LearningLevelEntity advanced = existing.getOverallLearningPath().get(1);
+        TopicEntity moved = topic("streams");
+        assertNotSame(streams, moved);
+        assertSame(advanced, moved.getLearningLevel());
+        assertFalse(existing.getOverallLearningPath().get(0).getTopics().contains(streams));
+        assertSame(syntax, topic("syntax"));
+        // The old row is deleted before the new one with the same business id is inserted
+        verify(entityManager, times(1)).flush();
+    }
+
+    @Test
+    void renamedTopicKeepsItsRowAndResources() {
+        TopicEntity generics = topic("generics");
+        List<Object> resources = new ArrayList<>(generics.getLearningResources());
+
+        merge(curriculum(
+                level("Beginner",
+                        topic("syntax", "Syntax"),
+                        topic("generics", "Generic Types", topic("wildcards", "Wildcards"), topic("bounds", "Bounds")),
+                        topic("streams", "Streams")),
+                level("Advanced",
+                        topic("concurrency", "Concurrency"))));
+
+        assertSame(generics, topic("generics"));
+        assertEquals("Generic Types", generics.getTitle());
+        assertSameElements(resources, new ArrayList<>(generics.getLearningResources()));
+        verify(entityManager, never()).flush();
+    }
+
+    @Test
+    void removedSubtopicIsDeleted() {
+        TopicEntity generics = topic("generics");
+        TopicEntity bounds = topic("bounds");
+        TopicEntity wildcards = topic("wildcards");
+
+        merge(curriculum(
+                level("Beginner",
+                        topic("syntax", "Syntax"),
+                        topic("generics", "Generics", topic("bounds", "Bounds")),
+                        topic("streams", "Streams")),
+                level("Advanced",
+                        topic("concurrency", "Concurrency"))));
+
+        assertSame(generics, topic("generics"));
+        assertEquals(List.of(bounds), generics.getSubtopics());
+        assertFalse(existing.getOverallLearningPath().get(0).getTopics().contains(wildcards));
+        verify(entityManager, times(1)).flush();
+    }
+
+    @Test
+    void reorderedLevelKeepsItsTopicRows() {
+        TopicEntity syntax = topic("syntax");
+        TopicEntity generics = topic("generics");
+        TopicEntity streams = topic("streams");
+
+        merge(curriculum(
+                level("Beginner",
+                        topic("streams", "Streams"),
+                        topic("syntax", "Syntax"),
+                        topic("generics", "Generics", topic("bounds", "Bounds"), topic("wildcards", "Wildcards"))),
+                level("Advanced",
+                        topic("concurrency", "Concurrency"))));
+
+        List<TopicEntity> topLevel = existing.getOverallLearningPath().get(0).getTopics().stream()
+                .filter(topic -> topic.getParentTopic() == null)
+                .toList();
+        assertSameElements(List.of(streams, syntax, generics), new ArrayList<>(topLevel));
+        assertEquals(List.of("bounds", "wildcards"), generics.getSubtopics().stream().map(TopicEntity::getId).toList());
+        verify(entityManager, never()).flush();
+    }
+
+    private void merge(CurriculumDTO curriculum) {
+        assertTrue(merger.merge(existing, curriculum, merger.contentHash(curriculum)));
+    }
+
+    // The level's topic collection holds its subtopics too, as it does when loaded from the database
+    private TopicEntity topic(String id) {
+        return existing.getOverallLearningPath().stream()
+                .flatMap(level -> level.getTopics().stream())
+                .filter(topic -> id.equals(topic.getId()))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    // Every entity of the tree and the element collections, in order
+    private List<Object> graph() {
+        List<Object> graph = new ArrayList<>();
+        for (LearningLevelEntity level : existing.getOverallLearningPath()) {
+            graph.add(level);
+            for (TopicEntity topic : level.getTopics()) {
+                graph.add(topic);
+                graph.addAll(topic.getSubtopics());
+                graph.addAll(topic.getHelpfulReferences());
+                graph.addAll(topic.getLearningResources());
+                graph.addAll(topic.getOutcomes());
+            }
+        }
+        return graph;
+    }
+
+    private static void assertSameElements(List<Object> expected, List<Object> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame(expected.get(i), actual.get(i));
+        }
+    }
+
+    private static CurriculumDTO curriculum(LearningLevelDTO... levels) {
+        return new CurriculumDTO("java", null, List.of(), List.of(levels), List.of("https://docs.oracle.com/javase/tutorial/"),
+                List.of(), List.of(), "Ordered by dependency", "test-model");
+    }
+
+    private static LearningLevelDTO level(String name, TopicDTO... topics) {
+        return new LearningLevelDTO(name, 20, List.of(topics));
+    }
+
+    private static TopicDTO topic(String id, String title, TopicDTO... subtopics) {
+        return new TopicDTO(id, title, "About " + title, 1, 2, List.of(), List.of("Can explain " + title), List.of(),
+                List.of(new SourceReferenceDTO("jls", "https://docs.oracle.com/javase/specs/" + id, "Snippet", "Evidence")),
+                List.of("jls"), List.of(subtopics),
+                List.of(new LearningResourceDTO(title + " tutorial", "https://dev.java/learn/" + id, "Article", 0.9, "Covers " + title)));
+    }
+}
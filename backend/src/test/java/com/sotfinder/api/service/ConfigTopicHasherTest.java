@@ -0,0 +1,105 @@
+package com.sotfinder.api.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class ConfigTopicHasherTest {
+
+    private static final String TOPICS = """
+            [
+              {"name": "Generics", "description": "Type parameters", "subtopics": [
+                {"title": "Wildcards", "level": 2},
+                "Bounds"
+              ]},
+              {"name": "Collections"}
+            ]
+            """;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ConfigTopicHasher hasher = new ConfigTopicHasher();
+
+    @Test
+    void keyOrderAndFormattingDoNotChangeTheHashes() throws Exception {
+        ConfigTopicHashTree tree = hasher.hash(json(TOPICS));
+        ConfigTopicHashTree reordered = hasher.hash(json("""
+                [{"subtopics":[{"level":2,"title":"Wildcards"},"Bounds"],"description":"Type parameters","name":"Generics"},
+                 {"name":"Collections"}]
+                """));
+
+        assertEquals(tree, reordered);
+    }
+
+    @Test
+    void topicOrderChangesOnlyTheRootHash() throws Exception {
+        ConfigTopicHashTree tree = hasher.hash(json(TOPICS));
+        ConfigTopicHashTree swapped = hasher.hash(json("""
+                [
+                  {"name": "Collections"},
+                  {"name": "Generics", "description": "Type parameters", "subtopics": [{"title": "Wildcards", "level": 2}, "Bounds"]}
+                ]
+                """));
+
+        assertNotEquals(tree.rootHash(), swapped.rootHash());
+        assertEquals(tree.topicHashes(), swapped.topicHashes());
+        assertEquals(Set.of(), swapped.contentChangedSince(tree.topicOwnHashes()));
+    }
+
+    @Test
+    void editedSubtopicChangesItsOwnHashButOnlyTheSubtreeHashOfItsParent() throws Exception {
+        ConfigTopicHashTree tree = hasher.hash(json(TOPICS));
+        ConfigTopicHashTree edited = hasher.hash(json(TOPICS.replace("\"level\": 2", "\"level\": 3")));
+
+        assertEquals(Set.of("/generics/wildcards"), edited.contentChangedSince(tree.topicOwnHashes()));
+        assertNotEquals(tree.topicHashes().get("/generics"), edited.topicHashes().get("/generics"));
+        assertEquals(tree.topicOwnHashes().get("/generics"), edited.topicOwnHashes().get("/generics"));
+        assertEquals(tree.topicHashes().get("/collections"), edited.topicHashes().get("/collections"));
+    }
+
+    @Test
+    void editedParentChangesItsOwnHashOnly() throws Exception {
+        ConfigTopicHashTree tree = hasher.hash(json(TOPICS));
+        ConfigTopicHashTree edited = hasher.hash(json(TOPICS.replace("Type parameters", "Parametric types")));
+
+        assertEquals(Set.of("/generics"), edited.contentChangedSince(tree.topicOwnHashes()));
+        assertEquals(tree.topicHashes().get("/generics/wildcards"), edited.topicHashes().get("/generics/wildcards"));
+    }
+
+    @Test
+    void removedAndAddedTopicsAreReported() throws Exception {
+        ConfigTopicHashTree tree = hasher.hash(json(TOPICS));
+        ConfigTopicHashTree edited = hasher.hash(json(TOPICS.replace("\"Bounds\"", "\"Variance\"")));
+
+        assertEquals(Set.of("/generics/bounds"), edited.removedSince(tree.topicHashes()));
+        assertEquals(Set.of("/generics/variance"), edited.contentChangedSince(tree.topicOwnHashes()));
+    }
+
+    @Test
+    void recordsTitlesOfObjectAndPlainTextTopics() throws Exception {
+        ConfigTopicHashTree tree = hasher.hash(json(TOPICS));
+
+        assertEquals(Map.of(
+                "/generics", "Generics",
+                "/generics/wildcards", "Wildcards",
+                "/generics/bounds", "Bounds",
+                "/collections", "Collections"), tree.topicTitles());
+    }
+
+    @Test
+    void duplicateNamesGetTheirOwnPaths() throws Exception {
+        ConfigTopicHashTree tree = hasher.hash(json("[\"Streams\", \"Streams\"]"));
+
+        assertEquals(Set.of("/streams", "/streams#1"), tree.topicHashes().keySet());
+    }
+
+    private JsonNode json(String text) throws Exception {
+        return objectMapper.readTree(text);
+    }
+}
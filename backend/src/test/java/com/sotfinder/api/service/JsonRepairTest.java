@@ -0,0 +1,57 @@
+package com.sotfinder.api.service;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+class JsonRepairTest {
+
+    static Stream<Arguments> completions() {
+        return Stream.of(
+                arguments("cut inside a string",
+                        "{\"resources\":[{\"title\":\"A\",\"url\":\"u\"},{\"title\":\"B\",\"url\":\"ht",
+                        "{\"resources\":[{\"title\":\"A\",\"url\":\"u\"}]}"),
+                arguments("cut between elements",
+                        "{\"resources\":[{\"title\":\"A\"},",
+                        "{\"resources\":[{\"title\":\"A\"}]}"),
+                arguments("escaped quotes before the cut",
+                        "{\"resources\":[{\"title\":\"say \\\"hi\\\"\"},{\"title\":\"a \\\"}]",
+                        "{\"resources\":[{\"title\":\"say \\\"hi\\\"\"}]}"),
+                arguments("escaped backslash closing a string",
+                        "{\"resources\":[{\"title\":\"C:\\\\\"},{\"ti",
+                        "{\"resources\":[{\"title\":\"C:\\\\\"}]}"),
+                arguments("brackets inside strings",
+                        "{\"resources\":[{\"title\":\"a]}\"},{\"title\":\"[{",
+                        "{\"resources\":[{\"title\":\"a]}\"}]}"),
+                arguments("empty array",
+                        "{\"resources\":[",
+                        "{\"resources\":[]}"),
+                arguments("first element incomplete",
+                        "{\"resources\":[{\"title\":\"A\",",
+                        "{\"resources\":[]}"),
+                arguments("batch cut mid-result",
+                        "{\"results\":[{\"id\":\"a\",\"resources\":[{\"title\":\"A\"}]},{\"id\":\"b\",\"resources\":[{\"title\":\"B\"},{\"ti",
+                        "{\"results\":[{\"id\":\"a\",\"resources\":[{\"title\":\"A\"}]}]}"),
+                arguments("not truncated",
+                        "Here you go: {\"resources\":[{\"title\":\"A\"}]} Enjoy!",
+                        "{\"resources\":[{\"title\":\"A\"}]}"),
+                arguments("cut before the array",
+                        "{\"resources\"",
+                        null),
+                arguments("no object",
+                        "I cannot help with that.",
+                        null)
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("completions")
+    void closesAfterTheLastCompleteElement(String description, String completion, String expected) {
+        assertEquals(expected, JsonRepair.closeAfterLastCompleteElement(completion), description);
+    }
+}
@@ -0,0 +1,122 @@
+package com.sotfinder.api.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LlmCircuitBreakerTest {
+
+    @Test
+    void staysClosedUntilTheMinimumNumberOfCalls() {
+        LlmCircuitBreaker breaker = breaker(Duration.ofMinutes(2));
+        for (int i = 0; i < 3; i++) {
+            breaker.onFailure();
+        }
+
+        assertEquals(LlmCircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void opensAtTheFailureRateAndRejectsWhileOpen() {
+        LlmCircuitBreaker breaker = breaker(Duration.ofMinutes(2));
+        breaker.onSuccess();
+        breaker.onSuccess();
+        breaker.onFailure();
+        assertEquals(LlmCircuitBreaker.State.CLOSED, breaker.getState());
+
+        breaker.onFailure();
+
+        assertEquals(LlmCircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void oldCallsLeaveTheWindow() {
+        LlmCircuitBreaker breaker = breaker(Duration.ofMinutes(2));
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onFailure();
+        for (int i = 0; i < 4; i++) {
+            breaker.onSuccess();
+        }
+
+        // Window of 4: only successes are left
+        assertEquals(0.0, breaker.getFailureRate(), 0.0);
+        breaker.onFailure();
+        assertEquals(LlmCircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void halfOpenLetsOnlyTheProbesThrough() {
+        LlmCircuitBreaker breaker = openBreaker(Duration.ZERO);
+
+        assertTrue(breaker.tryAcquire());
+        assertEquals(LlmCircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void closesWhenEveryProbeSucceeds() {
+        LlmCircuitBreaker breaker = openBreaker(Duration.ZERO);
+        breaker.tryAcquire();
+        breaker.tryAcquire();
+
+        breaker.onSuccess();
+        assertEquals(LlmCircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.onSuccess();
+
+        assertEquals(LlmCircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0.0, breaker.getFailureRate(), 0.0);
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void reopensWhenAProbeFails() {
+        LlmCircuitBreaker breaker = openBreaker(Duration.ZERO);
+        breaker.tryAcquire();
+        breaker.tryAcquire();
+        breaker.onSuccess();
+
+        breaker.onFailure();
+
+        assertEquals(LlmCircuitBreaker.State.OPEN, breaker.getState());
+        // The next half-open phase gets a fresh set of probes
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void ignoredProbeFreesItsSlot() {
+        LlmCircuitBreaker breaker = openBreaker(Duration.ZERO);
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onIgnored();
+
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    // Window of 4 calls, opens at 50% once 4 calls were seen, probes with 2 calls
+    private static LlmCircuitBreaker breaker(Duration openDuration) {
+        return new LlmCircuitBreaker(4, 4, 0.5, openDuration, 2, new SimpleMeterRegistry());
+    }
+
+    private static LlmCircuitBreaker openBreaker(Duration openDuration) {
+        LlmCircuitBreaker breaker = breaker(openDuration);
+        for (int i = 0; i < 4; i++) {
+            breaker.onFailure();
+        }
+        assertEquals(LlmCircuitBreaker.State.OPEN, breaker.getState());
+        return breaker;
+    }
+}
@@ -0,0 +1,224 @@
+package com.sotfinder.api.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.SSLSession;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LlmRateLimiterTest {
+
+    private final List<LlmRateLimiter> limiters = new ArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        limiters.forEach(LlmRateLimiter::shutdown);
+    }
+
+    @Test
+    void estimateTokensUsesTheCallsOutputSizeWhenGiven() {
+        LlmRateLimiter limiter = limiter(8);
+        String prompt = "x".repeat(400);
+
+        assertEquals(100 + 1500, limiter.estimateTokens(prompt));
+        assertEquals(100 + 12000, limiter.estimateTokens(prompt, 12000));
+    }
+
+    @Test
+    void parsesResetDurations() {
+        assertEquals(Optional.of(Duration.ofMinutes(6)), LlmRateLimiter.parseDuration("6m0s"));
+        assertEquals(Optional.of(Duration.ofMillis(120)), LlmRateLimiter.parseDuration("120ms"));
+        assertEquals(Optional.of(Duration.ofMillis(1500)), LlmRateLimiter.parseDuration("1.5s"));
+        assertEquals(Optional.of(Duration.ofMinutes(61)), LlmRateLimiter.parseDuration("1h1m"));
+        assertEquals(Optional.empty(), LlmRateLimiter.parseDuration("soon"));
+    }
+
+    @Test
+    void retryAfterPrefersMillisecondsAndIgnoresHttpDates() {
+        assertEquals(Optional.of(Duration.ofMillis(250)),
+                LlmRateLimiter.retryAfter(response(429, Map.of("retry-after-ms", "250", "retry-after", "3"))));
+        assertEquals(Optional.of(Duration.ofMillis(1500)),
+                LlmRateLimiter.retryAfter(response(429, Map.of("retry-after", "1.5"))));
+        assertEquals(Optional.empty(),
+                LlmRateLimiter.retryAfter(response(429, Map.of("retry-after", "Wed, 21 Oct 2026 07:28:00 GMT"))));
+    }
+
+    @Test
+    void callsBeyondTheConcurrencyLimitWaitForARelease() throws Exception {
+        LlmRateLimiter limiter = limiter(2);
+        CompletableFuture<LlmRateLimiter.Permit> first = limiter.acquire(10);
+        CompletableFuture<LlmRateLimiter.Permit> second = limiter.acquire(10);
+        CompletableFuture<LlmRateLimiter.Permit> third = limiter.acquire(10);
+
+        assertTrue(first.isDone());
+        assertTrue(second.isDone());
+        assertFalse(third.isDone());
+
+        first.join().release(response(200, Map.of()));
+        assertTrue(third.isDone());
+    }
+
+    @Test
+    void throttledResponsePausesEveryCallerForRetryAfterMs() throws Exception {
+        LlmRateLimiter limiter = limiter(8);
+        LlmRateLimiter.Permit permit = limiter.acquire(10).join();
+
+        long releasedAt = System.nanoTime();
+        permit.release(response(429, Map.of("retry-after-ms", "300")));
+        CompletableFuture<LlmRateLimiter.Permit> next = limiter.acquire(10);
+
+        assertFalse(next.isDone());
+        next.get(5, TimeUnit.SECONDS);
+        assertTrue(System.nanoTime() - releasedAt >= TimeUnit.MILLISECONDS.toNanos(300));
+    }
+
+    @Test
+    void exhaustedRequestBudgetPausesUntilTheReset() throws Exception {
+        LlmRateLimiter limiter = limiter(8);
+        LlmRateLimiter.Permit permit = limiter.acquire(10).join();
+
+        long releasedAt = System.nanoTime();
+        permit.release(response(200, Map.of(
+                "x-ratelimit-limit-requests", "500",
+                "x-ratelimit-remaining-requests", "0",
+                "x-ratelimit-reset-requests", "300ms")));
+        CompletableFuture<LlmRateLimiter.Permit> next = limiter.acquire(10);
+
+        assertFalse(next.isDone());
+        next.get(5, TimeUnit.SECONDS);
+        assertTrue(System.nanoTime() - releasedAt >= TimeUnit.MILLISECONDS.toNanos(300));
+    }
+
+    @Test
+    void callWaitsForTheTokenBudgetToRefill() throws Exception {
+        // 600 tokens per minute refill 10 per second
+        LlmRateLimiter limiter = new LlmRateLimiter(500, 600, 8, 1, 32, Duration.ofSeconds(90), 4, 1500, new SimpleMeterRegistry());
+        limiters.add(limiter);
+
+        assertTrue(limiter.acquire(600).isDone());
+        CompletableFuture<LlmRateLimiter.Permit> next = limiter.acquire(2);
+
+        assertFalse(next.isDone());
+        next.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void throttledCallsThatWereInFlightTogetherHalveTheLimitOnce() {
+        LlmRateLimiter limiter = limiter(8);
+        List<LlmRateLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            permits.add(limiter.acquire(10).join());
+        }
+        permits.forEach(permit -> permit.release(response(429, Map.of("retry-after-ms", "0"))));
+
+        // Halved once to 4, not eight times down to the minimum
+        List<CompletableFuture<LlmRateLimiter.Permit>> next = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            next.add(limiter.acquire(10));
+        }
+        assertEquals(4, next.stream().filter(CompletableFuture::isDone).count());
+        assertFalse(next.get(4).isDone());
+
+        // A call granted after that decrease is a new window: its 429 halves the limit again, to 2
+        next.get(0).join().release(response(429, Map.of("retry-after-ms", "0")));
+        assertFalse(next.get(4).isDone());
+        next.get(1).join().release(null);
+        assertFalse(next.get(4).isDone());
+        next.get(2).join().release(null);
+        assertTrue(next.get(4).isDone());
+    }
+
+    @Test
+    void cancelledWaiterGivesUpItsPlace() {
+        LlmRateLimiter limiter = limiter(1);
+        LlmRateLimiter.Permit running = limiter.acquire(10).join();
+        CompletableFuture<LlmRateLimiter.Permit> cancelled = limiter.acquire(10);
+        CompletableFuture<LlmRateLimiter.Permit> waiting = limiter.acquire(10);
+        CompletableFuture<LlmRateLimiter.Permit> last = limiter.acquire(10);
+
+        cancelled.cancel(true);
+        running.release(null);
+
+        assertTrue(waiting.isDone());
+        assertFalse(waiting.isCompletedExceptionally());
+        assertFalse(last.isDone());
+    }
+
+    @Test
+    void releasingAPermitTwiceFreesOneSlot() {
+        LlmRateLimiter limiter = limiter(1);
+        LlmRateLimiter.Permit permit = limiter.acquire(10).join();
+        CompletableFuture<LlmRateLimiter.Permit> second = limiter.acquire(10);
+        CompletableFuture<LlmRateLimiter.Permit> third = limiter.acquire(10);
+
+        permit.release(null);
+        permit.release(null);
+
+        assertTrue(second.isDone());
+        assertFalse(third.isDone());
+    }
+
+    private LlmRateLimiter limiter(int initialConcurrency) {
+        LlmRateLimiter limiter = new LlmRateLimiter(500, 200000, initialConcurrency, 1, 32, Duration.ofSeconds(90), 4, 1500,
+                new SimpleMeterRegistry());
+        limiters.add(limiter);
+        return limiter;
+    }
+
+    private static HttpResponse<Void> response(int statusCode, Map<String, String> headers) {
+        Map<String, List<String>> values = new HashMap<>();
+        headers.forEach((name, value) -> values.put(name, List.of(value)));
+        return new SyntheticResponse(statusCode, HttpHeaders.of(values, (name, value) -> true));
+    }
+
+    private record SyntheticResponse(int statusCode, HttpHeaders headers) implements HttpResponse<Void> {
+
+        @Override
+        public HttpRequest request() {
+            return HttpRequest.newBuilder(uri()).build();
+        }
+
+        @Override
+        public Optional<HttpResponse<Void>> previousResponse() {
+            return Optional.empty();
+        }
+
+        @Override
+        public Void body() {
+            return null;
+        }
+
+        @Override
+        public Optional<SSLSession> sslSession() {
+            return Optional.empty();
+        }
+
+        @Override
+        public URI uri() {
+            return URI.create("https://llm.test/v1/chat/completions");
+        }
+
+        @Override
+        public HttpClient.Version version() {
+            return HttpClient.Version.HTTP_1_1;
+        }
+    }
+}
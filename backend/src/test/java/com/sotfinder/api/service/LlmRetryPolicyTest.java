@@ -0,0 +1,106 @@
+package com.sotfinder.api.service;
+
+import com.sotfinder.api.exception.LlmCallException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LlmRetryPolicyTest {
+
+    private final LlmCircuitBreaker circuitBreaker = new LlmCircuitBreaker(20, 10, 0.5, Duration.ofMinutes(2), 2, new SimpleMeterRegistry());
+
+    @Test
+    void retriesTransientFailuresUntilOneSucceeds() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = policy(4, 10).execute(() -> attempts.incrementAndGet() < 3
+                ? CompletableFuture.<String>failedFuture(new IOException("connection reset"))
+                : CompletableFuture.completedFuture("ok")).get(5, TimeUnit.SECONDS);
+
+        assertEquals("ok", result);
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void rejectedRequestIsNotRetried() {
+        AtomicInteger attempts = new AtomicInteger();
+        LlmCallException rejected = new LlmCallException(LlmCallException.Kind.REJECTED, "400 Bad Request");
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> policy(4, 10).execute(() -> {
+            attempts.incrementAndGet();
+            return CompletableFuture.failedFuture(rejected);
+        }).get(5, TimeUnit.SECONDS));
+
+        assertSame(rejected, error.getCause());
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void reportsTheLastFailureOnceTheAttemptsRunOut() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> policy(3, 10).execute(() ->
+                CompletableFuture.failedFuture(new IOException("attempt " + attempts.incrementAndGet()))).get(5, TimeUnit.SECONDS));
+
+        assertEquals("attempt 3", error.getCause().getMessage());
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void stopsRetryingWhenTheBudgetIsSpent() {
+        AtomicInteger attempts = new AtomicInteger();
+        LlmRetryPolicy policy = new LlmRetryPolicy(circuitBreaker, 4, Duration.ZERO, Duration.ZERO, 0, 1, new SimpleMeterRegistry());
+
+        assertThrows(ExecutionException.class, () -> policy.execute(() -> {
+            attempts.incrementAndGet();
+            return CompletableFuture.failedFuture(new IOException("connection reset"));
+        }).get(5, TimeUnit.SECONDS));
+
+        assertEquals(2, attempts.get());
+        assertEquals(0.0, policy.getBudget(), 0.0);
+    }
+
+    @Test
+    void failsFastWhileTheBreakerIsOpen() {
+        for (int i = 0; i < 10; i++) {
+            circuitBreaker.onFailure();
+        }
+        AtomicInteger attempts = new AtomicInteger();
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> policy(4, 10).execute(() -> {
+            attempts.incrementAndGet();
+            return CompletableFuture.completedFuture("ok");
+        }).get(5, TimeUnit.SECONDS));
+
+        LlmCallException callException = assertInstanceOf(LlmCallException.class, error.getCause());
+        assertEquals(LlmCallException.Kind.CIRCUIT_OPEN, callException.getKind());
+        assertEquals(0, attempts.get());
+    }
+
+    @Test
+    void cancellingTheResultCancelsTheAttemptInFlight() {
+        CompletableFuture<String> inFlight = new CompletableFuture<>();
+
+        policy(4, 10).execute(() -> inFlight).cancel(true);
+
+        assertTrue(inFlight.isCancelled());
+    }
+
+    private LlmRetryPolicy policy(int maxAttempts, int budgetCapacity) {
+        return new LlmRetryPolicy(circuitBreaker, maxAttempts, Duration.ZERO, Duration.ZERO, 0.2, budgetCapacity, new SimpleMeterRegistry());
+    }
+}
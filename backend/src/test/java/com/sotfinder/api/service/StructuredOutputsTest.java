@@ -0,0 +1,69 @@
+package com.sotfinder.api.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sotfinder.api.language.dto.LearningResourceDTO;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+class StructuredOutputsTest {
+
+    private static final String FIRST = resource("First", "https://a.test");
+    private static final String SECOND = resource("Second \\\"quoted\\\"", "https://b.test");
+
+    private final StructuredOutputs structuredOutputs = new StructuredOutputs(new ObjectMapper(), true);
+
+    static Stream<Arguments> resourceLists() {
+        return Stream.of(
+                arguments("not truncated", "{\"resources\":[" + FIRST + "," + SECOND + "]}", List.of("First", "Second \"quoted\"")),
+                arguments("cut inside a string", "{\"resources\":[" + FIRST + "," + SECOND.substring(0, 20), List.of("First")),
+                arguments("cut after an escaped quote", "{\"resources\":[" + FIRST + "," + SECOND.substring(0, SECOND.indexOf("quoted") + 8),
+                        List.of("First")),
+                arguments("cut after a complete element", "{\"resources\":[" + FIRST + "," + SECOND + ",", List.of("First", "Second \"quoted\"")),
+                arguments("empty array", "{\"resources\":[", List.of())
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("resourceLists")
+    void keepsTheCompleteResources(String description, String completion, List<String> expectedTitles) throws IOException {
+        StructuredOutputs.ResourceList list = structuredOutputs.readRepairingTruncation(completion, StructuredOutputs.ResourceList.class);
+
+        assertEquals(expectedTitles, list.resources().stream().map(LearningResourceDTO::title).toList(), description);
+    }
+
+    @Test
+    void keepsTheCompleteResultsOfABatchCutMidResult() throws IOException {
+        String completion = "{\"results\":[{\"id\":\"t1\",\"resources\":[" + FIRST + "]},{\"id\":\"t2\",\"resources\":[" + SECOND + "," + FIRST.substring(0, 12);
+
+        StructuredOutputs.ResourceListsById batch = structuredOutputs.readRepairingTruncation(completion, StructuredOutputs.ResourceListsById.class);
+
+        assertEquals(List.of("t1"), batch.results().stream().map(StructuredOutputs.ResourceListsById.Result::id).toList());
+        assertEquals("First", batch.results().get(0).resources().get(0).title());
+    }
+
+    @Test
+    void malformedCompletionIsNotRepaired() {
+        assertThrows(IOException.class, () -> structuredOutputs.readRepairingTruncation(
+                "{\"resources\":[" + FIRST + ",}]}", StructuredOutputs.ResourceList.class));
+    }
+
+    @Test
+    void completionCutBeforeTheListFails() {
+        assertThrows(IOException.class, () -> structuredOutputs.readRepairingTruncation("{\"resour", StructuredOutputs.ResourceList.class));
+    }
+
+    private static String resource(String title, String url) {
+        return "{\"title\":\"" + title + "\",\"url\":\"" + url + "\",\"type\":\"Article\",\"authority_score\":0.8,\"short_summary\":\"About " + title + "\"}";
+    }
+}